@@ -1,19 +1,30 @@
 /*
  *  The scanner definition for COOL.
+ *
+ *  CoolLexer.java is JLex's output with one change JLex cannot be asked
+ *  for: the DFA tables (yy_cmap, yy_rmap, yy_nxt, yy_acpt) and the
+ *  constants are static, and yy_nxt is flattened.  Make the same change
+ *  after regenerating it; see the comment above yy_cmap there.
  */
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java_cup.runtime.Symbol;
 
 
 class CoolLexer implements java_cup.runtime.Scanner {
-	private final int YY_BUFFER_SIZE = 512;
-	private final int YY_F = -1;
-	private final int YY_NO_STATE = -1;
-	private final int YY_NOT_ACCEPT = 0;
-	private final int YY_START = 1;
-	private final int YY_END = 2;
-	private final int YY_NO_ANCHOR = 4;
-	private final int YY_BOL = 128;
-	private final int YY_EOF = 129;
+	private static final int YY_BUFFER_SIZE = 512;
+	private static final int YY_F = -1;
+	private static final int YY_NO_STATE = -1;
+	private static final int YY_NOT_ACCEPT = 0;
+	private static final int YY_START = 1;
+	private static final int YY_END = 2;
+	private static final int YY_NO_ANCHOR = 4;
+	private static final int YY_BOL = 128;
+	private static final int YY_EOF = 129;
 
 /*  Stuff enclosed in %{ %} is copied verbatim to the lexer class
  *  definition, all the extra variables/functions you want to use in the
@@ -21,8 +32,43 @@ class CoolLexer implements java_cup.runtime.Scanner {
  *  was there initially.  */
     // Max size of string constants
     static int MAX_STR_CONST = 1025;
-    // For assembling string constants
-    StringBuffer string_buf = new StringBuffer();
+    /* For assembling string constants.  Escapes are decoded as they are
+     * scanned, straight into the array.  string_len counts every
+     * character of the constant, but only the first MAX_STR_CONST are
+     * kept: that is enough to tell that it is too long. */
+    private char[] string_buf = new char[MAX_STR_CONST];
+    private int string_len = 0;
+    private void string_append(char c) {
+	if (string_len < string_buf.length) {
+	    string_buf[string_len] = c;
+	}
+	string_len++;
+    }
+    /* Appends the text of the current token */
+    private void string_append_text() {
+	int len = yy_buffer_end - yy_buffer_start;
+	int room = Math.min(len, string_buf.length - string_len);
+	if (room > 0) {
+	    System.arraycopy(yy_buffer, yy_buffer_start, string_buf, string_len,
+			     room);
+	}
+	string_len += len;
+    }
+    /* The character the escape \c stands for */
+    private static char escape(char c) {
+	switch (c) {
+	case 'b':
+	    return '\b';
+	case 't':
+	    return '\t';
+	case 'n':
+	    return '\n';
+	case 'f':
+	    return '\f';
+	default:
+	    return c;
+	}
+    }
     private int curr_lineno = 1;
     int get_curr_lineno() {
 	return curr_lineno;
@@ -34,6 +80,210 @@ class CoolLexer implements java_cup.runtime.Scanner {
     }
     AbstractSymbol curr_filename() {
 	return filename;
+    }
+    /* A reader that is always at end of file.  Lexers that scan a
+     * mapped file are created on it. */
+    static final Reader NO_INPUT = new Reader() {
+	    public int read(char[] cbuf, int off, int len) {
+		return -1;
+	    }
+	    public void close() {
+	    }
+	};
+    /* Makes the lexer scan the given file from memory instead of through
+     * its reader.  The file is mapped and decoded in a single pass
+     * straight into the lexer's buffer, so scanning never has to refill,
+     * grow or compact the buffer.  Must be called before the first token
+     * is read; tokens and line numbers are the same as when reading the
+     * file through a FileReader. */
+    void map_file(String fname) throws IOException {
+	FileInputStream in = new FileInputStream(fname);
+	CharBuffer chars;
+	try {
+	    FileChannel channel = in.getChannel();
+	    chars = Charset.defaultCharset().decode(
+		channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+	} finally {
+	    in.close();
+	}
+	if (chars.hasArray() && chars.arrayOffset() == 0
+	    && chars.array().length > 0) {
+	    yy_buffer = chars.array();
+	} else {
+	    yy_buffer = new char[chars.remaining() + 1];
+	    chars.get(yy_buffer, 0, chars.remaining());
+	}
+	yy_buffer_read = chars.limit();
+	yy_buffer_index = 0;
+	yy_buffer_start = 0;
+	yy_buffer_end = 0;
+	yy_reader = new java.io.BufferedReader(NO_INPUT);
+    }
+    /* Small direct-mapped caches of the identifiers, integers and
+     * string constants seen so far, looked up by the text of the token
+     * while it is still in yy_buffer (or, for a string constant, by its
+     * decoded value in string_buf).  A name that hits the cache is
+     * interned without building a String for it. */
+    private AbstractSymbol[] id_cache = new AbstractSymbol[1024];
+    private AbstractSymbol[] int_cache = new AbstractSymbol[256];
+    private AbstractSymbol[] str_cache = new AbstractSymbol[256];
+    private AbstractSymbol intern(AbstractTable table, AbstractSymbol[] cache) {
+	return intern(table, cache, yy_buffer, yy_buffer_start, yy_buffer_end);
+    }
+    private AbstractSymbol intern(AbstractTable table, AbstractSymbol[] cache,
+				  char[] buf, int start, int end) {
+	int h = 0;
+	for (int i = start; i < end; i++) {
+	    h = 31 * h + buf[i];
+	}
+	int slot = (h ^ (h >>> 16)) & (cache.length - 1);
+	AbstractSymbol sym = cache[slot];
+	if (sym == null || !matches(sym.getString(), buf, start, end)) {
+	    sym = table.addString(new String(buf, start, end - start));
+	    cache[slot] = sym;
+	}
+	return sym;
+    }
+    /* Do the characters buf[start..end) equal s? */
+    private static boolean matches(String s, char[] buf, int start, int end) {
+	int len = end - start;
+	if (s.length() != len) {
+	    return false;
+	}
+	for (int i = 0; i < len; i++) {
+	    if (s.charAt(i) != buf[start + i]) {
+		return false;
+	    }
+	}
+	return true;
+    }
+    /* In packed mode (see PackedTokens) the actions append each token to
+     * the packed stream instead of allocating a Symbol, and next_token()
+     * returns the same placeholder every time. */
+    private PackedTokens packed = null;
+    private static final Symbol PACKED = new Symbol(TokenConstants.ERROR);
+    void set_packed(PackedTokens tokens) {
+	packed = tokens;
+    }
+    private Symbol tok(int kind) {
+	if (packed != null) {
+	    packed.put(kind, curr_lineno, 0, null);
+	    return PACKED;
+	}
+	return new Symbol(kind);
+    }
+    private Symbol tok(int kind, Object value) {
+	if (packed != null) {
+	    if (value instanceof AbstractSymbol) {
+		packed.put(kind, curr_lineno, ((AbstractSymbol)value).index, null);
+	    } else if (value instanceof Boolean) {
+		packed.put(kind, curr_lineno,
+			   ((Boolean)value).booleanValue() ? 1 : 0, null);
+	    } else {
+		packed.put(kind, curr_lineno, 0, value);
+	    }
+	    return PACKED;
+	}
+	return new Symbol(kind, value);
+    }
+    /* Keywords.  Identifiers and keywords are scanned by a single rule
+     * and the keywords are then picked out with a perfect hash of the
+     * length and the first, second and last characters.  The characters
+     * are folded to lower case with |0x20, which maps no character other
+     * than a letter onto a letter.  The multipliers were found by search
+     * so that the 19 keywords land in distinct slots. */
+    private static final String[] KEYWORDS = new String[32];
+    private static final int[] KEYWORD_TOKENS = new int[32];
+    private static int keyword_hash(int first, int second, int last, int len) {
+	return ((first | 0x20) * 7 + (second | 0x20) * 9
+		+ (last | 0x20) * 4 + len) & 31;
+    }
+    private static void keyword(String kw, int kind) {
+	int h = keyword_hash(kw.charAt(0), kw.charAt(1),
+			     kw.charAt(kw.length() - 1), kw.length());
+	if (KEYWORDS[h] != null) {
+	    throw new Error("keyword hash collision: " + kw + " " + KEYWORDS[h]);
+	}
+	KEYWORDS[h] = kw;
+	KEYWORD_TOKENS[h] = kind;
+    }
+    static {
+	keyword("class",     TokenConstants.CLASS);
+	keyword("else",      TokenConstants.ELSE);
+	keyword("fi",        TokenConstants.FI);
+	keyword("if",        TokenConstants.IF);
+	keyword("in",        TokenConstants.IN);
+	keyword("inherits",  TokenConstants.INHERITS);
+	keyword("isvoid",    TokenConstants.ISVOID);
+	keyword("let",       TokenConstants.LET);
+	keyword("loop",      TokenConstants.LOOP);
+	keyword("pool",      TokenConstants.POOL);
+	keyword("then",      TokenConstants.THEN);
+	keyword("while",     TokenConstants.WHILE);
+	keyword("case",      TokenConstants.CASE);
+	keyword("esac",      TokenConstants.ESAC);
+	keyword("new",       TokenConstants.NEW);
+	keyword("of",        TokenConstants.OF);
+	keyword("not",       TokenConstants.NOT);
+	keyword("true",      TokenConstants.BOOL_CONST);
+	keyword("false",     TokenConstants.BOOL_CONST);
+    }
+    private Symbol identifier() {
+	int len = yy_buffer_end - yy_buffer_start;
+	char first = yy_buffer[yy_buffer_start];
+	if (len >= 2 && len <= 8) {
+	    int h = keyword_hash(first, yy_buffer[yy_buffer_start + 1],
+				 yy_buffer[yy_buffer_end - 1], len);
+	    String kw = KEYWORDS[h];
+	    if (kw != null && kw.length() == len && matches_folded(kw)) {
+		int kind = KEYWORD_TOKENS[h];
+		if (kind != TokenConstants.BOOL_CONST) {
+		    return tok(kind);
+		}
+		// true and false must start with a lower case letter
+		if (first == 't') {
+		    return tok(kind, Boolean.TRUE);
+		}
+		if (first == 'f') {
+		    return tok(kind, Boolean.FALSE);
+		}
+	    }
+	}
+	if (first <= 'Z') {
+	    return tok(TokenConstants.TYPEID, intern(AbstractTable.idtable, id_cache));
+	}
+	return tok(TokenConstants.OBJECTID, intern(AbstractTable.idtable, id_cache));
+    }
+    /* Does the text of the current token, folded to lower case, equal
+     * the lower case keyword kw? */
+    private boolean matches_folded(String kw) {
+	for (int i = 0; i < kw.length(); i++) {
+	    if (kw.charAt(i) != (yy_buffer[yy_buffer_start + i] | 0x20)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+    /* Lexer state between tokens, used by IncrementalLexer to restart
+     * the lexer in the middle of a file. */
+    int get_lexical_state() {
+	return yy_lexical_state;
+    }
+    int get_comment_depth() {
+	return comment_open_num;
+    }
+    /* The character offset just past the last token returned. */
+    int get_char_offset() {
+	return yychar + yy_buffer_end - yy_buffer_start;
+    }
+    /* Puts a lexer whose reader starts at the given character offset of
+     * a file into the state saved there by the get_ methods above. */
+    void restore_state(int offset, int lexical_state, int comment_depth,
+		       int lineno) {
+	yychar = offset;
+	yybegin(lexical_state);
+	comment_open_num = comment_depth;
+	curr_lineno = lineno;
     }
 	private java.io.BufferedReader yy_reader;
 	private int yy_buffer_index;
@@ -41,6 +291,7 @@ class CoolLexer implements java_cup.runtime.Scanner {
 	private int yy_buffer_start;
 	private int yy_buffer_end;
 	private char yy_buffer[];
+	private int yychar;
 	private boolean yy_at_bol;
 	private int yy_lexical_state;
 
@@ -66,6 +317,7 @@ class CoolLexer implements java_cup.runtime.Scanner {
 		yy_buffer_index = 0;
 		yy_buffer_start = 0;
 		yy_buffer_end = 0;
+		yychar = 0;
 		yy_at_bol = true;
 		yy_lexical_state = YYINITIAL;
 
@@ -76,17 +328,17 @@ class CoolLexer implements java_cup.runtime.Scanner {
 	}
 
 	private boolean yy_eof_done = false;
-	private final int STRING = 1;
-	private final int BLOCK_COMMENT = 4;
-	private final int LINE_COMMENT = 3;
-	private final int YYINITIAL = 0;
-	private final int STRING_NULL = 2;
-	private final int yy_state_dtrans[] = {
+	private static final int STRING = 1;
+	private static final int BLOCK_COMMENT = 4;
+	private static final int LINE_COMMENT = 3;
+	private static final int YYINITIAL = 0;
+	private static final int STRING_NULL = 2;
+	private static final int yy_state_dtrans[] = {
 		0,
-		65,
-		89,
-		59,
-		93
+		2,
+		3,
+		4,
+		5
 	};
 	private void yybegin (int state) {
 		yy_lexical_state = state;
@@ -146,6 +398,8 @@ class CoolLexer implements java_cup.runtime.Scanner {
 	}
 	private boolean yy_last_was_cr=false;
 	private void yy_mark_start () {
+		yychar = yychar
+			+ yy_buffer_index - yy_buffer_start;
 		yy_buffer_start = yy_buffer_index;
 	}
 	private void yy_mark_end () {
@@ -176,9 +430,9 @@ class CoolLexer implements java_cup.runtime.Scanner {
 		}
 		return newbuf;
 	}
-	private final int YY_E_INTERNAL = 0;
-	private final int YY_E_MATCH = 1;
-	private java.lang.String yy_error_string[] = {
+	private static final int YY_E_INTERNAL = 0;
+	private static final int YY_E_MATCH = 1;
+	private static final java.lang.String yy_error_string[] = {
 		"Error: Internal error.\n",
 		"Error: Unmatched input.\n"
 	};
@@ -189,7 +443,7 @@ class CoolLexer implements java_cup.runtime.Scanner {
 			throw new Error("Fatal Error.\n");
 		}
 	}
-	private int[][] unpackFromString(int size1, int size2, String st) {
+	private static int[][] unpackFromString(int size1, int size2, String st) {
 		int colonIndex = -1;
 		String lengthString;
 		int sequenceLength = 0;
@@ -226,13 +480,13 @@ class CoolLexer implements java_cup.runtime.Scanner {
 		}
 		return res;
 	}
-	private int yy_acpt[] = {
+	private static final int yy_acpt[] = {
 		/* 0 */ YY_NOT_ACCEPT,
 		/* 1 */ YY_NO_ANCHOR,
-		/* 2 */ YY_NO_ANCHOR,
-		/* 3 */ YY_NO_ANCHOR,
+		/* 2 */ YY_NOT_ACCEPT,
+		/* 3 */ YY_NOT_ACCEPT,
 		/* 4 */ YY_NO_ANCHOR,
-		/* 5 */ YY_NO_ANCHOR,
+		/* 5 */ YY_NOT_ACCEPT,
 		/* 6 */ YY_NO_ANCHOR,
 		/* 7 */ YY_NO_ANCHOR,
 		/* 8 */ YY_NO_ANCHOR,
@@ -279,193 +533,44 @@ class CoolLexer implements java_cup.runtime.Scanner {
 		/* 49 */ YY_NO_ANCHOR,
 		/* 50 */ YY_NO_ANCHOR,
 		/* 51 */ YY_NO_ANCHOR,
-		/* 52 */ YY_NO_ANCHOR,
-		/* 53 */ YY_NO_ANCHOR,
-		/* 54 */ YY_NO_ANCHOR,
-		/* 55 */ YY_NO_ANCHOR,
-		/* 56 */ YY_NO_ANCHOR,
-		/* 57 */ YY_NO_ANCHOR,
-		/* 58 */ YY_NO_ANCHOR,
-		/* 59 */ YY_NO_ANCHOR,
-		/* 60 */ YY_NO_ANCHOR,
-		/* 61 */ YY_NO_ANCHOR,
-		/* 62 */ YY_NO_ANCHOR,
-		/* 63 */ YY_NO_ANCHOR,
-		/* 64 */ YY_NO_ANCHOR,
-		/* 65 */ YY_NOT_ACCEPT,
-		/* 66 */ YY_NO_ANCHOR,
-		/* 67 */ YY_NO_ANCHOR,
-		/* 68 */ YY_NO_ANCHOR,
-		/* 69 */ YY_NO_ANCHOR,
-		/* 70 */ YY_NO_ANCHOR,
-		/* 71 */ YY_NO_ANCHOR,
-		/* 72 */ YY_NO_ANCHOR,
-		/* 73 */ YY_NO_ANCHOR,
-		/* 74 */ YY_NO_ANCHOR,
-		/* 75 */ YY_NO_ANCHOR,
-		/* 76 */ YY_NO_ANCHOR,
-		/* 77 */ YY_NO_ANCHOR,
-		/* 78 */ YY_NO_ANCHOR,
-		/* 79 */ YY_NO_ANCHOR,
-		/* 80 */ YY_NO_ANCHOR,
-		/* 81 */ YY_NO_ANCHOR,
-		/* 82 */ YY_NO_ANCHOR,
-		/* 83 */ YY_NO_ANCHOR,
-		/* 84 */ YY_NO_ANCHOR,
-		/* 85 */ YY_NO_ANCHOR,
-		/* 86 */ YY_NO_ANCHOR,
-		/* 87 */ YY_NO_ANCHOR,
-		/* 88 */ YY_NO_ANCHOR,
-		/* 89 */ YY_NOT_ACCEPT,
-		/* 90 */ YY_NO_ANCHOR,
-		/* 91 */ YY_NO_ANCHOR,
-		/* 92 */ YY_NO_ANCHOR,
-		/* 93 */ YY_NOT_ACCEPT,
-		/* 94 */ YY_NO_ANCHOR,
-		/* 95 */ YY_NO_ANCHOR,
-		/* 96 */ YY_NO_ANCHOR,
-		/* 97 */ YY_NO_ANCHOR,
-		/* 98 */ YY_NO_ANCHOR,
-		/* 99 */ YY_NO_ANCHOR,
-		/* 100 */ YY_NO_ANCHOR,
-		/* 101 */ YY_NO_ANCHOR,
-		/* 102 */ YY_NO_ANCHOR,
-		/* 103 */ YY_NO_ANCHOR,
-		/* 104 */ YY_NO_ANCHOR,
-		/* 105 */ YY_NO_ANCHOR,
-		/* 106 */ YY_NO_ANCHOR,
-		/* 107 */ YY_NO_ANCHOR,
-		/* 108 */ YY_NO_ANCHOR,
-		/* 109 */ YY_NO_ANCHOR,
-		/* 110 */ YY_NO_ANCHOR,
-		/* 111 */ YY_NO_ANCHOR,
-		/* 112 */ YY_NO_ANCHOR,
-		/* 113 */ YY_NO_ANCHOR,
-		/* 114 */ YY_NO_ANCHOR,
-		/* 115 */ YY_NO_ANCHOR,
-		/* 116 */ YY_NO_ANCHOR,
-		/* 117 */ YY_NO_ANCHOR,
-		/* 118 */ YY_NO_ANCHOR,
-		/* 119 */ YY_NO_ANCHOR,
-		/* 120 */ YY_NO_ANCHOR,
-		/* 121 */ YY_NO_ANCHOR,
-		/* 122 */ YY_NO_ANCHOR,
-		/* 123 */ YY_NO_ANCHOR,
-		/* 124 */ YY_NO_ANCHOR,
-		/* 125 */ YY_NO_ANCHOR,
-		/* 126 */ YY_NO_ANCHOR,
-		/* 127 */ YY_NO_ANCHOR,
-		/* 128 */ YY_NO_ANCHOR,
-		/* 129 */ YY_NO_ANCHOR,
-		/* 130 */ YY_NO_ANCHOR,
-		/* 131 */ YY_NO_ANCHOR,
-		/* 132 */ YY_NO_ANCHOR,
-		/* 133 */ YY_NO_ANCHOR,
-		/* 134 */ YY_NO_ANCHOR,
-		/* 135 */ YY_NO_ANCHOR,
-		/* 136 */ YY_NO_ANCHOR,
-		/* 137 */ YY_NO_ANCHOR,
-		/* 138 */ YY_NO_ANCHOR,
-		/* 139 */ YY_NO_ANCHOR,
-		/* 140 */ YY_NO_ANCHOR,
-		/* 141 */ YY_NO_ANCHOR,
-		/* 142 */ YY_NO_ANCHOR,
-		/* 143 */ YY_NO_ANCHOR,
-		/* 144 */ YY_NO_ANCHOR,
-		/* 145 */ YY_NO_ANCHOR,
-		/* 146 */ YY_NO_ANCHOR,
-		/* 147 */ YY_NO_ANCHOR,
-		/* 148 */ YY_NO_ANCHOR,
-		/* 149 */ YY_NO_ANCHOR,
-		/* 150 */ YY_NO_ANCHOR,
-		/* 151 */ YY_NO_ANCHOR,
-		/* 152 */ YY_NO_ANCHOR,
-		/* 153 */ YY_NO_ANCHOR,
-		/* 154 */ YY_NO_ANCHOR,
-		/* 155 */ YY_NO_ANCHOR,
-		/* 156 */ YY_NO_ANCHOR,
-		/* 157 */ YY_NO_ANCHOR,
-		/* 158 */ YY_NO_ANCHOR,
-		/* 159 */ YY_NO_ANCHOR,
-		/* 160 */ YY_NO_ANCHOR,
-		/* 161 */ YY_NO_ANCHOR,
-		/* 162 */ YY_NO_ANCHOR,
-		/* 163 */ YY_NO_ANCHOR,
-		/* 164 */ YY_NO_ANCHOR,
-		/* 165 */ YY_NO_ANCHOR,
-		/* 166 */ YY_NO_ANCHOR,
-		/* 167 */ YY_NO_ANCHOR,
-		/* 168 */ YY_NO_ANCHOR,
-		/* 169 */ YY_NO_ANCHOR,
-		/* 170 */ YY_NO_ANCHOR,
-		/* 171 */ YY_NO_ANCHOR,
-		/* 172 */ YY_NO_ANCHOR,
-		/* 173 */ YY_NO_ANCHOR,
-		/* 174 */ YY_NO_ANCHOR
+		/* 52 */ YY_NO_ANCHOR
 	};
-	private int yy_cmap[] = unpackFromString(1,130,
-"5,7:8,11,4,11:2,2,7:18,11,7,1,7:5,8,10,9,53,57,6,55,54,12:10,59,58,52,50,51" +
-",7,60,32,33,34,35,36,22,33,37,38,33:2,39,33,40,41,42,33,43,44,26,45,46,47,3" +
-"3:3,7,3,7:2,48,7,15,49,13,29,17,18,49,25,23,49:2,14,49,24,28,30,49,20,16,19" +
-",21,27,31,49:3,62,7,61,56,7,0:2")[0];
+	/* JLex makes the tables below instance fields, so every new lexer
+	   decoded them from their strings again.  They never change: they
+	   are static, decoded once when the class is loaded, and shared by
+	   all lexers.  yy_nxt is flattened into one array, and yy_rmap
+	   holds the offset of each state's row in it, so a transition is
+	   yy_nxt[yy_rmap[state] + yy_cmap[c]]. */
+	private static int[] flatten(int[][] rows) {
+		int[] flat = new int[rows.length * rows[0].length];
+		for (int i = 0; i < rows.length; i++) {
+			System.arraycopy(rows[i], 0, flat, i * rows[i].length,
+					 rows[i].length);
+		}
+		return flat;
+	}
+	private static int[] rowOffsets(int[] rows, int width) {
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] *= width;
+		}
+		return rows;
+	}
+	private static final int yy_cmap[] = unpackFromString(1,130,
+"0,1:8,2,3,2:2,4,1:18,2,1,5,1:5,6,7,8,9,10,11,12,13,14:10,15,16,17,18,19,1,2" +
+"0,21:26,1,22,1:2,23,1,21:26,24,1,25,26,1,27,28")[0];
 
-	private int yy_rmap[] = unpackFromString(1,175,
-"0,1:2,2,1:2,3,4,5,1,6,7,8,9,10,1:13,11:2,12,11,1:3,11:15,1,13,1:7,14,1:5,15" +
-",16,17,18,19:2,20,19:14,21,22,23,24,25,26,27,28,29,30,31,32,33,34,35,36,37," +
-"38,39,40,41,42,43,44,45,46,47,48,49,50,51,52,53,54,55,56,57,58,59,60,61,62," +
-"63,64,65,66,67,68,69,70,71,72,73,74,75,76,77,78,79,80,81,82,83,84,85,86,87," +
-"88,89,90,91,92,93,94,95,96,97,98,11,19,99,100,101,102,103,104,105,106,107")[0];
+	private static final int yy_rmap[] = rowOffsets(unpackFromString(1,53,
+"0,1,2,3,4,5,1:6,6,7,8,1:2,9,1:2,10,1:2,11,12,13,1:2,14,15,1:3,16,1,17,18,1," +
+"19,20,21,1:12")[0], 29);
 
-	private int yy_nxt[][] = unpackFromString(108,63,
-"1,2,3,4,5,4,6,4,7,8,9,3,10,11,124,164:2,166,67,168,164:2,12,90,126,164,68,1" +
-"64,94,164,170,172,165:2,167,165,169,165,91,125,127,95,171,165:4,173,4,164,1" +
-"3,4,14,15,16,17,18,19,20,21,22,23,24,-1:65,3,-1:8,3,-1:57,25,-1:65,26,-1:63" +
-",27,-1:64,10,-1:62,164:2,174,128,164:16,128,164:6,174,164:10,-1:25,165:11,6" +
-"9,165:14,69,165:11,-1:64,32,-1:17,33,-1:43,34,-1:24,164:38,-1:25,164:13,154" +
-",164:11,154,164:12,-1:15,51,-1:3,51:57,1,87,-1,87,60,87:58,1,50,51,66,52,53" +
-",51:57,-1,54:3,55,53,54:57,-1:12,164:3,136,164:7,28,164:8,136,164:5,28,164:" +
-"11,-1:25,165:13,129,165:11,129,165:12,-1:25,165:38,-1:25,165:13,151,165:11," +
-"151,165:12,-1:17,58,-1:59,87,-1,87,60,87:58,-1:9,63,-1:53,1,56,57,86,56,57:" +
-"58,-1:12,164:4,142,164,29,164:3,29,164,30,164:15,30,164:3,142,164:5,-1:25,1" +
-"65:4,139,165,70,165:3,70,165,71,165:15,71,165:3,139,165:5,-1:23,64,-1:52,1," +
-"61,-1,61,62,61:3,88,92,61:53,-1:12,164:6,31,164:3,31,164:27,-1:25,165:6,72," +
-"165:3,72,165:27,-1:25,164:7,35,164:6,35,164:23,-1:25,165:7,73,165:6,73,165:" +
-"23,-1:25,164:19,36,164:15,36,164:2,-1:25,165:19,74,165:15,74,165:2,-1:25,16" +
-"4:7,37,164:6,37,164:23,-1:25,165:7,75,165:6,75,165:23,-1:25,164:5,38,164:18" +
-",38,164:13,-1:25,165:12,80,165:15,80,165:9,-1:25,164:18,39,164:11,39,164:7," +
-"-1:25,165:5,76,165:18,76,165:13,-1:25,164:5,40,164:18,40,164:13,-1:25,165:5" +
-",78,165:18,78,165:13,-1:25,164,41,164:20,41,164:15,-1:25,165,79,165:20,79,1" +
-"65:15,-1:25,164:5,42,164:18,42,164:13,-1:25,165:18,77,165:11,77,165:7,-1:25" +
-",164:12,43,164:15,43,164:9,-1:25,165:2,81,165:24,81,165:10,-1:25,164:2,44,1" +
-"64:24,44,164:10,-1:25,165:4,82,165:27,82,165:5,-1:25,164:4,45,164:27,45,164" +
-":5,-1:25,165:5,83,165:18,83,165:13,-1:25,164:5,46,164:18,46,164:13,-1:25,16" +
-"5:17,84,165:5,84,165:14,-1:25,164:5,47,164:18,47,164:13,-1:25,165:4,85,165:" +
-"27,85,165:5,-1:25,164:17,48,164:5,48,164:14,-1:25,164:4,49,164:27,49,164:5," +
-"-1:25,164:5,96,164:10,130,164:7,96,164:4,130,164:8,-1:25,165:5,97,165:10,14" +
-"1,165:7,97,165:4,141,165:8,-1:25,164:5,98,164:10,100,164:7,98,164:4,100,164" +
-":8,-1:25,165:5,99,165:10,101,165:7,99,165:4,101,165:8,-1:25,164:4,102,164:2" +
-"7,102,164:5,-1:25,165:5,103,165:18,103,165:13,-1:25,164:16,104,164:12,104,1" +
-"64:8,-1:25,165:3,147,165:16,147,165:17,-1:25,164:4,106,164:27,106,164:5,-1:" +
-"25,165:4,105,165:27,105,165:5,-1:25,164:3,108,164:16,108,164:17,-1:25,165:4" +
-",107,165:27,107,165:5,-1:25,164:2,150,164:24,150,164:10,-1:25,165:3,109,165" +
-":16,109,165:17,-1:25,164:9,110,164:23,110,164:4,-1:25,165:15,149,165:18,149" +
-",165:3,-1:25,164:5,112,164:18,112,164:13,-1:25,165:16,111,165:12,111,165:8," +
-"-1:25,164:15,152,164:18,152,164:3,-1:25,165:16,113,165:12,113,165:8,-1:25,1" +
-"64:16,114,164:12,114,164:8,-1:25,165:11,153,165:14,153,165:11,-1:25,164:11," +
-"156,164:14,156,164:11,-1:25,165:4,115,165:27,115,165:5,-1:25,164:4,116,164:" +
-"27,116,164:5,-1:25,165:16,155,165:12,155,165:8,-1:25,164:4,118,164:27,118,1" +
-"64:5,-1:25,165:5,157,165:18,157,165:13,-1:25,164:16,158,164:12,158,164:8,-1" +
-":25,165:2,117,165:24,117,165:10,-1:25,164:5,160,164:18,160,164:13,-1:25,165" +
-":11,119,165:14,119,165:11,-1:25,164:2,120,164:24,120,164:10,-1:25,165:8,159" +
-",165:22,159,165:6,-1:25,164:11,122,164:14,122,164:11,-1:25,165:11,161,165:1" +
-"4,161,165:11,-1:25,164:8,162,164:22,162,164:6,-1:25,165:7,121,165:6,121,165" +
-":23,-1:25,164:11,163,164:14,163,164:11,-1:25,164:7,123,164:6,123,164:23,-1:" +
-"25,164:2,132,164,134,164:22,132,164:4,134,164:5,-1:25,165:2,131,133,165:16," +
-"133,165:6,131,165:10,-1:25,164:8,138,164:4,140,164:11,140,164:5,138,164:6,-" +
-"1:25,165:2,135,165,137,165:22,135,165:4,137,165:5,-1:25,164:16,144,164:12,1" +
-"44,164:8,-1:25,165:16,143,165:12,143,165:8,-1:25,164:13,146,164:11,146,164:" +
-"12,-1:25,165:13,145,165:11,145,165:12,-1:25,164:3,148,164:16,148,164:17,-1:" +
-"13");
+	private static final int yy_nxt[] = flatten(unpackFromString(22,29,
+"11:2,12,27,12,6,13,7,14,15,16,17,18,19,20,21,22,23,24,11,8,25,11:2,10,9,26," +
+"1,-1:30,30,28:2,32,28,31,28:16,29,28:4,1,-1,35:3,34,35,34,35:16,33,35:4,1,-" +
+"1,36:3,37,-1,36:22,1,-1,38:3,41,-1,38,39,38,40,38:18,1,-1:3,12,-1,12,-1:32," +
+"42,-1:27,43,-1:32,44,-1:31,20,-1:25,46,-1:6,45,-1:29,47,-1:23,25,-1:6,25,-1" +
+",25,-1:6,28:2,-1,28,-1,28:16,-1,28:4,-1:2,30,48:2,49,48:23,-1:5,50,-1:25,35" +
+":3,-1,35,-1,35:16,-1,35:4,-1:2,36:3,37,-1,36:22,-1:2,38:3,-1:2,38,-1,38,-1," +
+"38:18,-1:10,51,-1:27,52,-1:21"));
 
 	public java_cup.runtime.Symbol next_token ()
 		throws java.io.IOException {
@@ -487,7 +592,7 @@ class CoolLexer implements java_cup.runtime.Scanner {
 			if (yy_initial && yy_at_bol) yy_lookahead = YY_BOL;
 			else yy_lookahead = yy_advance();
 			yy_next_state = YY_F;
-			yy_next_state = yy_nxt[yy_rmap[yy_state]][yy_cmap[yy_lookahead]];
+			yy_next_state = yy_nxt[yy_rmap[yy_state] + yy_cmap[yy_lookahead]];
 			if (YY_EOF == yy_lookahead && true == yy_initial) {
 
 /*  Stuff enclosed in %eofval{ %eofval} specifies java code that is
@@ -503,12 +608,12 @@ class CoolLexer implements java_cup.runtime.Scanner {
     case STRING:
     case STRING_NULL:
         yybegin(YYINITIAL);
-        return new Symbol(TokenConstants.ERROR, "EOF in string constant");
+        return tok(TokenConstants.ERROR, "EOF in string constant");
     case BLOCK_COMMENT:
         yybegin(YYINITIAL);
-        return new Symbol(TokenConstants.ERROR, "EOF in comment");
+        return tok(TokenConstants.ERROR, "EOF in comment");
     }
-    return new Symbol(TokenConstants.EOF);
+    return tok(TokenConstants.EOF);
 			}
 			if (YY_F != yy_next_state) {
 				yy_state = yy_next_state;
@@ -534,741 +639,244 @@ class CoolLexer implements java_cup.runtime.Scanner {
 						
 					case -2:
 						break;
-					case 2:
+					case 4:
+						{/* The end could be EOF */}
+					case -3:
+						break;
+					case 6:
 						{
-  string_buf.setLength(0);
+  string_len = 0;
   yybegin(STRING); 
 }
-					case -3:
-						break;
-					case 3:
-						{ /* Do nothing but just eat it up */ }
 					case -4:
 						break;
-					case 4:
-						{ /* This rule should be the very last
-                                     in your lexical specification and
-                                     will match match everything not
-                                     matched by other lexical rules. */
-                                 // System.err.println("LEXER BUG - UNMATCHED: " + yytext());
-                                  return new Symbol(TokenConstants.ERROR, yytext());
-                                }
-					case -5:
-						break;
-					case 5:
-						{ curr_lineno++; }
-					case -6:
-						break;
-					case 6:
-						{ return new Symbol(TokenConstants.MINUS); }
-					case -7:
-						break;
 					case 7:
-						{ return new Symbol(TokenConstants.LPAREN); }
-					case -8:
+						{ return tok(TokenConstants.RPAREN); }
+					case -5:
 						break;
 					case 8:
-						{ return new Symbol(TokenConstants.MULT); }
-					case -9:
+						{ return tok(TokenConstants.AT); }
+					case -6:
 						break;
 					case 9:
-						{ return new Symbol(TokenConstants.RPAREN); }
-					case -10:
+						{ return tok(TokenConstants.RBRACE); }
+					case -7:
 						break;
 					case 10:
-						{ return new Symbol(TokenConstants.INT_CONST, AbstractTable.inttable.addString(yytext())); }
-					case -11:
+						{ return tok(TokenConstants.LBRACE); }
+					case -8:
 						break;
 					case 11:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -12:
+						{ /* This rule should be the very last
+                                     in your lexical specification and
+                                     will match match everything not
+                                     matched by other lexical rules. */
+                                 // System.err.println("LEXER BUG - UNMATCHED: " + yytext());
+                                  return tok(TokenConstants.ERROR, yytext());
+                                }
+					case -9:
 						break;
 					case 12:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -13:
+						{ /* Do nothing but just eat it up */ }
+					case -10:
 						break;
 					case 13:
-						{ return new Symbol(TokenConstants.EQ); }
-					case -14:
+						{ return tok(TokenConstants.LPAREN); }
+					case -11:
 						break;
 					case 14:
-						{ return new Symbol(TokenConstants.LT); }
-					case -15:
+						{ return tok(TokenConstants.MULT); }
+					case -12:
 						break;
 					case 15:
-						{ return new Symbol(TokenConstants.PLUS); }
-					case -16:
+						{ return tok(TokenConstants.PLUS); }
+					case -13:
 						break;
 					case 16:
-						{ return new Symbol(TokenConstants.DIV); }
-					case -17:
+						{ return tok(TokenConstants.COMMA); }
+					case -14:
 						break;
 					case 17:
-						{ return new Symbol(TokenConstants.DOT); }
-					case -18:
+						{ return tok(TokenConstants.MINUS); }
+					case -15:
 						break;
 					case 18:
-						{ return new Symbol(TokenConstants.NEG); }
-					case -19:
+						{ return tok(TokenConstants.DOT); }
+					case -16:
 						break;
 					case 19:
-						{ return new Symbol(TokenConstants.COMMA); }
-					case -20:
+						{ return tok(TokenConstants.DIV); }
+					case -17:
 						break;
 					case 20:
-						{ return new Symbol(TokenConstants.SEMI); }
-					case -21:
+						{ return tok(TokenConstants.INT_CONST, intern(AbstractTable.inttable, int_cache)); }
+					case -18:
 						break;
 					case 21:
-						{ return new Symbol(TokenConstants.COLON); }
-					case -22:
+						{ return tok(TokenConstants.COLON); }
+					case -19:
 						break;
 					case 22:
-						{ return new Symbol(TokenConstants.AT); }
-					case -23:
+						{ return tok(TokenConstants.SEMI); }
+					case -20:
 						break;
 					case 23:
-						{ return new Symbol(TokenConstants.RBRACE); }
-					case -24:
+						{ return tok(TokenConstants.LT); }
+					case -21:
 						break;
 					case 24:
-						{ return new Symbol(TokenConstants.LBRACE); }
-					case -25:
+						{ return tok(TokenConstants.EQ); }
+					case -22:
 						break;
 					case 25:
-						{ /* Line Comment */ yybegin(LINE_COMMENT); }
-					case -26:
+						{ /* Identifier or keyword */ return identifier(); }
+					case -23:
 						break;
 					case 26:
-						{/* Block Comment */ 
-  yybegin(BLOCK_COMMENT);
-  comment_open_num += 1;
-}
-					case -27:
+						{ return tok(TokenConstants.NEG); }
+					case -24:
 						break;
 					case 27:
-						{ return new Symbol(TokenConstants.ERROR, "Unmatched *)"); }
-					case -28:
+						{ curr_lineno++; }
+					case -25:
 						break;
 					case 28:
-						{ return new Symbol(TokenConstants.FI); }
-					case -29:
+						{ /* Normal characters */ 
+  string_append_text(); 
+}
+					case -26:
 						break;
 					case 29:
-						{ return new Symbol(TokenConstants.IF); }
-					case -30:
+						{ /* This rule should be the very last
+                                     in your lexical specification and
+                                     will match match everything not
+                                     matched by other lexical rules. */
+                                 // System.err.println("LEXER BUG - UNMATCHED: " + yytext());
+                                  return tok(TokenConstants.ERROR, yytext());
+                                }
+					case -27:
 						break;
 					case 30:
-						{ return new Symbol(TokenConstants.IN); }
-					case -31:
+						{ /* ERROR: null character */
+  yybegin(STRING_NULL);
+}
+					case -28:
 						break;
 					case 31:
-						{ return new Symbol(TokenConstants.OF); }
-					case -32:
+						{ /* End of string */
+  yybegin(YYINITIAL);
+  if(string_len >= MAX_STR_CONST)
+    return tok(TokenConstants.ERROR, "String constant too long");
+  return tok(TokenConstants.STR_CONST,
+	     intern(AbstractTable.stringtable, str_cache, string_buf, 0, string_len));
+}
+					case -29:
 						break;
 					case 32:
-						{ return new Symbol(TokenConstants.DARROW); }
-					case -33:
+						{ /* ERROR: unterminated string */
+  yybegin(YYINITIAL);
+  curr_lineno += 1;
+  return tok(TokenConstants.ERROR, "Unterminated string constant");
+}
+					case -30:
 						break;
 					case 33:
-						{ return new Symbol(TokenConstants.ASSIGN); }
-					case -34:
+						{}
+					case -31:
 						break;
 					case 34:
-						{ return new Symbol(TokenConstants.LE); }
-					case -35:
+						{ 
+  yybegin(YYINITIAL);
+  curr_lineno += 1;
+  return tok(TokenConstants.ERROR, "String contains null character");
+}
+					case -32:
 						break;
 					case 35:
-						{ return new Symbol(TokenConstants.LET); }
-					case -36:
+						{}
+					case -33:
 						break;
 					case 36:
-						{ return new Symbol(TokenConstants.NEW); }
-					case -37:
+						{/* The end could be EOF */}
+					case -34:
 						break;
 					case 37:
-						{ return new Symbol(TokenConstants.NOT); }
-					case -38:
+						{ yybegin(YYINITIAL); curr_lineno += 1; }
+					case -35:
 						break;
 					case 38:
-						{ return new Symbol(TokenConstants.CASE); }
-					case -39:
+						{ /* Everything up to the next ( * or newline */ }
+					case -36:
 						break;
 					case 39:
-						{ return new Symbol(TokenConstants.LOOP); }
-					case -40:
+						{}
+					case -37:
 						break;
 					case 40:
-						{ return new Symbol(TokenConstants.ELSE); }
-					case -41:
+						{}
+					case -38:
 						break;
 					case 41:
-						{ return new Symbol(TokenConstants.ESAC); }
-					case -42:
+						{ curr_lineno += 1; }
+					case -39:
 						break;
 					case 42:
-						{ return new Symbol(TokenConstants.BOOL_CONST, Boolean.TRUE); }
-					case -43:
+						{/* Block Comment */ 
+  yybegin(BLOCK_COMMENT);
+  comment_open_num += 1;
+}
+					case -40:
 						break;
 					case 43:
-						{ return new Symbol(TokenConstants.THEN); }
-					case -44:
+						{ return tok(TokenConstants.ERROR, "Unmatched *)"); }
+					case -41:
 						break;
 					case 44:
-						{ return new Symbol(TokenConstants.POOL); }
-					case -45:
+						{ /* Line Comment */ yybegin(LINE_COMMENT); }
+					case -42:
 						break;
 					case 45:
-						{ return new Symbol(TokenConstants.CLASS); }
-					case -46:
+						{ return tok(TokenConstants.LE); }
+					case -43:
 						break;
 					case 46:
-						{ return new Symbol(TokenConstants.BOOL_CONST, Boolean.FALSE); }
-					case -47:
+						{ return tok(TokenConstants.ASSIGN); }
+					case -44:
 						break;
 					case 47:
-						{ return new Symbol(TokenConstants.WHILE); }
-					case -48:
+						{ return tok(TokenConstants.DARROW); }
+					case -45:
 						break;
 					case 48:
-						{ return new Symbol(TokenConstants.ISVOID); }
-					case -49:
-						break;
-					case 49:
-						{ return new Symbol(TokenConstants.INHERITS); }
-					case -50:
-						break;
-					case 50:
-						{ /* End of string */
-  yybegin(YYINITIAL);
-  String str = string_buf.toString();
-  if(str.length() >= MAX_STR_CONST)
-    return new Symbol(TokenConstants.ERROR, "String constant too long");
-  return new Symbol(TokenConstants.STR_CONST, AbstractTable.stringtable.addString(str));
-}
-					case -51:
-						break;
-					case 51:
-						{ /* Normal characters */ 
-  string_buf.append(yytext()); 
-}
-					case -52:
-						break;
-					case 52:
-						{ /* ERROR: unterminated string */
-  yybegin(YYINITIAL);
-  curr_lineno += 1;
-  return new Symbol(TokenConstants.ERROR, "Unterminated string constant");
-}
-					case -53:
-						break;
-					case 53:
-						{ /* ERROR: null character */
-  yybegin(STRING_NULL);
-}
-					case -54:
-						break;
-					case 54:
 						{ /* \c */
-  if(yytext().equals("\\b")) 
-    string_buf.append('\b');
-  else if (yytext().equals("\\t"))
-    string_buf.append('\t');
-  else if (yytext().equals("\\n"))
-    string_buf.append('\n');
-  else if (yytext().equals("\\f"))
-    string_buf.append('\f');
-  else
-    string_buf.append(yytext().charAt(1));
+  string_append(escape(yy_buffer[yy_buffer_start + 1]));
 }
-					case -55:
+					case -46:
 						break;
-					case 55:
+					case 49:
 						{ /* Escaped new line */
-  string_buf.append('\n');
-  curr_lineno += 1;
-}
-					case -56:
-						break;
-					case 56:
-						{ 
-  yybegin(YYINITIAL);
+  string_append('\n');
   curr_lineno += 1;
-  return new Symbol(TokenConstants.ERROR, "String contains null character");
 }
-					case -57:
-						break;
-					case 57:
-						{}
-					case -58:
+					case -47:
 						break;
-					case 58:
+					case 50:
 						{ /* Escaped newline is not the end of string */}
-					case -59:
-						break;
-					case 59:
-						{/* The end could be EOF */}
-					case -60:
-						break;
-					case 60:
-						{ yybegin(YYINITIAL); curr_lineno += 1; }
-					case -61:
-						break;
-					case 61:
-						{}
-					case -62:
-						break;
-					case 62:
-						{ curr_lineno += 1; }
-					case -63:
+					case -48:
 						break;
-					case 63:
+					case 51:
 						{ comment_open_num += 1; }
-					case -64:
+					case -49:
 						break;
-					case 64:
+					case 52:
 						{
   comment_open_num -= 1;
   if(comment_open_num < 0)
-    return new Symbol(TokenConstants.ERROR, "Unmatched *)");
+    return tok(TokenConstants.ERROR, "Unmatched *)");
   else if(comment_open_num == 0)
     yybegin(YYINITIAL);
 }
-					case -65:
-						break;
-					case 66:
-						{ /* This rule should be the very last
-                                     in your lexical specification and
-                                     will match match everything not
-                                     matched by other lexical rules. */
-                                 // System.err.println("LEXER BUG - UNMATCHED: " + yytext());
-                                  return new Symbol(TokenConstants.ERROR, yytext());
-                                }
-					case -66:
-						break;
-					case 67:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -67:
-						break;
-					case 68:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -68:
-						break;
-					case 69:
-						{ return new Symbol(TokenConstants.FI); }
-					case -69:
-						break;
-					case 70:
-						{ return new Symbol(TokenConstants.IF); }
-					case -70:
-						break;
-					case 71:
-						{ return new Symbol(TokenConstants.IN); }
-					case -71:
-						break;
-					case 72:
-						{ return new Symbol(TokenConstants.OF); }
-					case -72:
-						break;
-					case 73:
-						{ return new Symbol(TokenConstants.LET); }
-					case -73:
-						break;
-					case 74:
-						{ return new Symbol(TokenConstants.NEW); }
-					case -74:
-						break;
-					case 75:
-						{ return new Symbol(TokenConstants.NOT); }
-					case -75:
-						break;
-					case 76:
-						{ return new Symbol(TokenConstants.CASE); }
-					case -76:
-						break;
-					case 77:
-						{ return new Symbol(TokenConstants.LOOP); }
-					case -77:
-						break;
-					case 78:
-						{ return new Symbol(TokenConstants.ELSE); }
-					case -78:
-						break;
-					case 79:
-						{ return new Symbol(TokenConstants.ESAC); }
-					case -79:
-						break;
-					case 80:
-						{ return new Symbol(TokenConstants.THEN); }
-					case -80:
-						break;
-					case 81:
-						{ return new Symbol(TokenConstants.POOL); }
-					case -81:
-						break;
-					case 82:
-						{ return new Symbol(TokenConstants.CLASS); }
-					case -82:
-						break;
-					case 83:
-						{ return new Symbol(TokenConstants.WHILE); }
-					case -83:
-						break;
-					case 84:
-						{ return new Symbol(TokenConstants.ISVOID); }
-					case -84:
-						break;
-					case 85:
-						{ return new Symbol(TokenConstants.INHERITS); }
-					case -85:
-						break;
-					case 86:
-						{}
-					case -86:
-						break;
-					case 87:
-						{/* The end could be EOF */}
-					case -87:
-						break;
-					case 88:
-						{}
-					case -88:
-						break;
-					case 90:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -89:
-						break;
-					case 91:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -90:
-						break;
-					case 92:
-						{}
-					case -91:
-						break;
-					case 94:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -92:
-						break;
-					case 95:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -93:
-						break;
-					case 96:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -94:
-						break;
-					case 97:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -95:
-						break;
-					case 98:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -96:
-						break;
-					case 99:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -97:
-						break;
-					case 100:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -98:
-						break;
-					case 101:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -99:
-						break;
-					case 102:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -100:
-						break;
-					case 103:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -101:
-						break;
-					case 104:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -102:
-						break;
-					case 105:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -103:
-						break;
-					case 106:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -104:
-						break;
-					case 107:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -105:
-						break;
-					case 108:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -106:
-						break;
-					case 109:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -107:
-						break;
-					case 110:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -108:
-						break;
-					case 111:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -109:
-						break;
-					case 112:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -110:
-						break;
-					case 113:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -111:
-						break;
-					case 114:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -112:
-						break;
-					case 115:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -113:
-						break;
-					case 116:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -114:
-						break;
-					case 117:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -115:
-						break;
-					case 118:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -116:
-						break;
-					case 119:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -117:
-						break;
-					case 120:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -118:
-						break;
-					case 121:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -119:
-						break;
-					case 122:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -120:
-						break;
-					case 123:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -121:
-						break;
-					case 124:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -122:
-						break;
-					case 125:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -123:
-						break;
-					case 126:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -124:
-						break;
-					case 127:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -125:
-						break;
-					case 128:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -126:
-						break;
-					case 129:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -127:
-						break;
-					case 130:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -128:
-						break;
-					case 131:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -129:
-						break;
-					case 132:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -130:
-						break;
-					case 133:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -131:
-						break;
-					case 134:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -132:
-						break;
-					case 135:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -133:
-						break;
-					case 136:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -134:
-						break;
-					case 137:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -135:
-						break;
-					case 138:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -136:
-						break;
-					case 139:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -137:
-						break;
-					case 140:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -138:
-						break;
-					case 141:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -139:
-						break;
-					case 142:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -140:
-						break;
-					case 143:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -141:
-						break;
-					case 144:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -142:
-						break;
-					case 145:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -143:
-						break;
-					case 146:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -144:
-						break;
-					case 147:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -145:
-						break;
-					case 148:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -146:
-						break;
-					case 149:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -147:
-						break;
-					case 150:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -148:
-						break;
-					case 151:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -149:
-						break;
-					case 152:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -150:
-						break;
-					case 153:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -151:
-						break;
-					case 154:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -152:
-						break;
-					case 155:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -153:
-						break;
-					case 156:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -154:
-						break;
-					case 157:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -155:
-						break;
-					case 158:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -156:
-						break;
-					case 159:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -157:
-						break;
-					case 160:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -158:
-						break;
-					case 161:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -159:
-						break;
-					case 162:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -160:
-						break;
-					case 163:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -161:
-						break;
-					case 164:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -162:
-						break;
-					case 165:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -163:
-						break;
-					case 166:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -164:
-						break;
-					case 167:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -165:
-						break;
-					case 168:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -166:
-						break;
-					case 169:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -167:
-						break;
-					case 170:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -168:
-						break;
-					case 171:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -169:
-						break;
-					case 172:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -170:
-						break;
-					case 173:
-						{ /* Type Identifyer */ return new Symbol(TokenConstants.TYPEID, AbstractTable.idtable.addString(yytext())); }
-					case -171:
-						break;
-					case 174:
-						{ /* Object Identifyer */ return new Symbol(TokenConstants.OBJECTID, AbstractTable.idtable.addString(yytext())); }
-					case -172:
+					case -50:
 						break;
 					default:
 						yy_error(YY_E_INTERNAL,false);
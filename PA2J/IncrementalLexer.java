@@ -0,0 +1,189 @@
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.util.Vector;
+import java_cup.runtime.Symbol;
+
+/** Keeps the token stream of a source text up to date as it is edited.
+ *
+ * After each token the lexer's state is saved: the offset just past
+ * the token, the lexical state, the comment nesting depth and the line
+ * number.  The lexer never looks more than one character past the end
+ * of a token, so an edit starting at offset o cannot change any token
+ * that ends before o, and the lexer can be restarted from the state
+ * saved after the last such token.
+ *
+ * Re-lexing stops as soon as the new stream is back in step with the
+ * old one: a new token ends at the position of an old token that lies
+ * after the edited region, and the lexer is in the same state.  From
+ * there on the text and the state are the same as before, so the rest
+ * of the old tokens are kept, with their offsets and lines shifted.
+ * */
+class IncrementalLexer {
+    private char[] text;
+    private int length;
+
+    /** The tokens, ending with EOF */
+    private Vector tokens = new Vector();
+
+    /** State after each token: end offset, line, lexical state and
+     * comment depth */
+    private int[] ends = new int[64];
+    private int[] lines = new int[64];
+    private int[] states = new int[64];
+    private int[] depths = new int[64];
+
+    IncrementalLexer(String source) throws IOException {
+	text = source.toCharArray();
+	length = text.length;
+	relex(-1, 0, 0);
+    }
+
+    /** The number of tokens, including the final EOF */
+    int size() {
+	return tokens.size();
+    }
+
+    Symbol token(int i) {
+	return (Symbol)tokens.elementAt(i);
+    }
+
+    /** The offset just past token i */
+    int end(int i) {
+	return ends[i];
+    }
+
+    /** The line number reported by the lexer after token i */
+    int line(int i) {
+	return lines[i];
+    }
+
+    String text() {
+	return new String(text, 0, length);
+    }
+
+    /** Applies an edit to the text and updates the tokens.
+     *
+     * @param offset where the edit starts
+     * @param removed the number of characters removed at offset
+     * @param inserted the text inserted in their place
+     * @return the number of tokens that were lexed again
+     * */
+    int edit(int offset, int removed, String inserted) throws IOException {
+	int delta = inserted.length() - removed;
+	char[] t = text;
+	if (length + delta > t.length) {
+	    t = new char[Math.max(2 * t.length, length + delta)];
+	    System.arraycopy(text, 0, t, 0, offset);
+	}
+	System.arraycopy(text, offset + removed, t, offset + inserted.length(),
+			 length - offset - removed);
+	inserted.getChars(0, inserted.length(), t, offset);
+	text = t;
+	length += delta;
+
+	// the last token ending before the edit; binary search on ends
+	int lo = 0;
+	int hi = tokens.size() - 1;
+	while (lo <= hi) {
+	    int mid = (lo + hi) >>> 1;
+	    if (ends[mid] < offset) {
+		lo = mid + 1;
+	    } else {
+		hi = mid - 1;
+	    }
+	}
+	return relex(hi, offset + removed, delta);
+    }
+
+    /** Lexes again from the state saved after token restart (-1 for the
+     * start of the text) until the stream resynchronizes with the old
+     * tokens past old offset editEnd, which move by delta. */
+    private int relex(int restart, int editEnd, int delta) throws IOException {
+	int start = restart < 0 ? 0 : ends[restart];
+	CoolLexer lexer =
+	    new CoolLexer(new CharArrayReader(text, start, length - start));
+	if (restart >= 0) {
+	    lexer.restore_state(start, states[restart], depths[restart],
+				lines[restart]);
+	}
+
+	Vector fresh = new Vector();
+	int[] e = new int[16];
+	int[] l = new int[16];
+	int[] st = new int[16];
+	int[] d = new int[16];
+	int old = restart + 1;
+	int oldCount = tokens.size();
+	int sync = -1;
+	while (true) {
+	    Symbol s = lexer.next_token();
+	    int n = fresh.size();
+	    if (n == e.length) {
+		e = grow(e);
+		l = grow(l);
+		st = grow(st);
+		d = grow(d);
+	    }
+	    e[n] = lexer.get_char_offset();
+	    l[n] = lexer.get_curr_lineno();
+	    st[n] = lexer.get_lexical_state();
+	    d[n] = lexer.get_comment_depth();
+	    fresh.addElement(s);
+	    if (s.sym == TokenConstants.EOF) {
+		break;
+	    }
+	    while (old < oldCount && ends[old] + delta < e[n]) {
+		old++;
+	    }
+	    if (old < oldCount && ends[old] >= editEnd
+		&& ends[old] + delta == e[n]
+		&& states[old] == st[n] && depths[old] == d[n]
+		&& token(old).sym != TokenConstants.EOF) {
+		sync = old;
+		break;
+	    }
+	}
+
+	// splice: tokens[0..restart] + fresh + tokens[sync+1..] shifted
+	int count = fresh.size();
+	int keep = sync < 0 ? 0 : oldCount - sync - 1;
+	int lineDelta = sync < 0 ? 0 : l[count - 1] - lines[sync];
+	int total = restart + 1 + count + keep;
+	ends = splice(ends, restart, e, count, sync, keep, delta);
+	lines = splice(lines, restart, l, count, sync, keep, lineDelta);
+	states = splice(states, restart, st, count, sync, keep, 0);
+	depths = splice(depths, restart, d, count, sync, keep, 0);
+
+	Vector merged = new Vector(total);
+	for (int i = 0; i <= restart; i++) {
+	    merged.addElement(tokens.elementAt(i));
+	}
+	for (int i = 0; i < fresh.size(); i++) {
+	    merged.addElement(fresh.elementAt(i));
+	}
+	for (int i = sync + 1; sync >= 0 && i < oldCount; i++) {
+	    merged.addElement(tokens.elementAt(i));
+	}
+	tokens = merged;
+	return fresh.size();
+    }
+
+    /** Builds old[0..restart] + fresh[0..count) + old[sync+1..] with
+     * shift added to the entries taken from the tail. */
+    private static int[] splice(int[] old, int restart, int[] fresh, int count,
+				int sync, int keep, int shift) {
+	int[] a = new int[Math.max(restart + 1 + count + keep, 16)];
+	System.arraycopy(old, 0, a, 0, restart + 1);
+	System.arraycopy(fresh, 0, a, restart + 1, count);
+	for (int i = 0; i < keep; i++) {
+	    a[restart + 1 + count + i] = old[sync + 1 + i] + shift;
+	}
+	return a;
+    }
+
+    private static int[] grow(int[] a) {
+	int[] b = new int[2 * a.length];
+	System.arraycopy(a, 0, b, 0, a.length);
+	return b;
+    }
+}
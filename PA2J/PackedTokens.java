@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java_cup.runtime.Symbol;
+
+/** A token stream that does not allocate per token.
+ *
+ * The lexer normally returns a new java_cup.runtime.Symbol for every
+ * token.  In packed mode it instead appends the token's kind, line
+ * number and value to a ring buffer of ints held here:
+ * <ul>
+ * <li>for identifiers, integers and strings the value is the index of
+ *     the symbol in idtable, inttable or stringtable,
+ * <li>for booleans it is 1 or 0,
+ * <li>for error tokens, which are rare, the message is kept on the side.
+ * </ul>
+ *
+ * Consumers that only need the token kinds call next() and the
+ * accessors.  The parser reads the tokens through next_token(), which
+ * implements the CUP Scanner interface and builds a Symbol only at that
+ * boundary.
+ * */
+class PackedTokens implements TokenSource {
+    /** Ints per token in the ring */
+    private static final int WIDTH = 3;
+
+    private CoolLexer lexer;
+    private int[] ring;
+    private Object[] errors;
+    private int mask;
+
+    /** Tokens ever put into / taken out of the ring */
+    private int head = 0;
+    private int tail = 0;
+
+    /** The lexer has produced the EOF token */
+    private boolean eof = false;
+
+    /** An exception thrown by the lexer while tokens before it were
+     * still in the ring; rethrown once those have been consumed */
+    private Throwable failure = null;
+
+    /** Fields of the token last returned by next() */
+    private int kind;
+    private int line;
+    private int value;
+    private Object error;
+
+    /** Creates a packed stream over the given lexer.
+     *
+     * @param lexer the lexer, which is switched to packed mode
+     * @param capacity the number of tokens the ring holds; rounded up to
+     * a power of two
+     * */
+    PackedTokens(CoolLexer lexer, int capacity) {
+	int n = 1;
+	while (n < capacity) {
+	    n <<= 1;
+	}
+	this.lexer = lexer;
+	ring = new int[n * WIDTH];
+	errors = new Object[n];
+	mask = n - 1;
+	lexer.set_packed(this);
+    }
+
+    PackedTokens(CoolLexer lexer) {
+	this(lexer, 1024);
+    }
+
+    /** Appends a token.  Called from the lexer's actions. */
+    void put(int kind, int line, int value, Object error) {
+	int slot = head & mask;
+	ring[slot * WIDTH] = kind;
+	ring[slot * WIDTH + 1] = line;
+	ring[slot * WIDTH + 2] = value;
+	errors[slot] = error;
+	head++;
+	if (kind == TokenConstants.EOF) {
+	    eof = true;
+	}
+    }
+
+    /** Runs the lexer until the ring is full or the input is used up. */
+    private void fill() throws IOException {
+	try {
+	    while (!eof && head - tail <= mask) {
+		lexer.next_token();
+	    }
+	} catch (IOException ex) {
+	    failure = ex;
+	} catch (RuntimeException ex) {
+	    failure = ex;
+	} catch (Error ex) {
+	    failure = ex;
+	}
+    }
+
+    /** Throws the lexer's pending exception, if any. */
+    private void rethrow() throws IOException {
+	Throwable ex = failure;
+	failure = null;
+	if (ex instanceof IOException) {
+	    throw (IOException)ex;
+	} else if (ex instanceof RuntimeException) {
+	    throw (RuntimeException)ex;
+	} else if (ex instanceof Error) {
+	    throw (Error)ex;
+	}
+    }
+
+    /** Advances to the next token.
+     *
+     * @return the token's kind; TokenConstants.EOF at the end of input,
+     * repeatedly if called again
+     * */
+    int next() throws IOException {
+	if (head == tail) {
+	    rethrow();
+	    fill();
+	}
+	if (head == tail) {
+	    rethrow();
+	}
+	if (head == tail) {
+	    // past EOF: the lexer keeps returning EOF tokens
+	    lexer.next_token();
+	}
+	int slot = tail & mask;
+	kind = ring[slot * WIDTH];
+	line = ring[slot * WIDTH + 1];
+	value = ring[slot * WIDTH + 2];
+	error = errors[slot];
+	errors[slot] = null;
+	tail++;
+	return kind;
+    }
+
+    /** The line number of the current token */
+    int line() {
+	return line;
+    }
+
+    /** The value of the current token, as described above */
+    int value() {
+	return value;
+    }
+
+    /** The current token as a CUP Symbol. */
+    Symbol symbol() {
+	switch (kind) {
+	case TokenConstants.TYPEID:
+	case TokenConstants.OBJECTID:
+	    return new Symbol(kind, AbstractTable.idtable.lookup(value));
+	case TokenConstants.INT_CONST:
+	    return new Symbol(kind, AbstractTable.inttable.lookup(value));
+	case TokenConstants.STR_CONST:
+	    return new Symbol(kind, AbstractTable.stringtable.lookup(value));
+	case TokenConstants.BOOL_CONST:
+	    return new Symbol(kind, value != 0 ? Boolean.TRUE : Boolean.FALSE);
+	case TokenConstants.ERROR:
+	    return new Symbol(kind, error);
+	default:
+	    return new Symbol(kind);
+	}
+    }
+
+    public Symbol next_token() throws IOException {
+	next();
+	return symbol();
+    }
+
+    /** The line of the token last returned.  The lexer itself may be
+     * further ahead. */
+    public int curr_lineno() {
+	return line;
+    }
+
+    public AbstractSymbol curr_filename() {
+	return lexer.curr_filename();
+    }
+}
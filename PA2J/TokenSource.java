@@ -0,0 +1,10 @@
+/** A token stream the parser can ask for the line number and file name
+ * of the last token it returned, like CoolTokenLexer.  The action code
+ * in cool.cup uses these for the line numbers of the AST nodes. */
+interface TokenSource extends java_cup.runtime.Scanner {
+    /** The line number of the last token returned */
+    public int curr_lineno();
+
+    /** The file the tokens come from */
+    public AbstractSymbol curr_filename();
+}
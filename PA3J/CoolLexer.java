@@ -0,0 +1 @@
+../PA2J/CoolLexer.java
\ No newline at end of file
@@ -0,0 +1,745 @@
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** An AST held in parallel arrays instead of one object per node.
+ *
+ * The tree of cool-tree.java costs a header, a line number, a type and
+ * references for every node, and a list object for every list; a
+ * program of millions of nodes takes hundreds of megabytes and a lot of
+ * garbage collection.  An arena numbers the nodes in preorder and keeps,
+ * for node n,
+ * <pre>
+ *   kind[n]        the node's AstWriter tag
+ *   line[n]        its line number
+ *   type[n]        for expressions, 0 if untyped, else 1 + the number of
+ *                  the type in ids
+ *   first[n]       where its fields start in fields
+ * </pre>
+ * The fields are in the order of the constructor's arguments, each a
+ * child node's number, a list's number or a symbol's number in ids,
+ * strings or ints (the file's own numbering, see AstWriter), and a
+ * node has only as many as its kind needs, so an object takes one
+ * field and a plus two.  List l has listLength[l] elements starting at
+ * elements[listStart[l]], and its line is listLine[l].
+ *
+ * An arena is read from the binary format of AstWriter, so it can be
+ * loaded from a file written with -b or from the compile cache without
+ * building the tree at all.  dump_with_types() prints what the tree's
+ * dump_with_types prints, and toTree() builds the tree (for semant, or
+ * any other code written against cool-tree.java).
+ * */
+class AstArena {
+    private byte[] kind;
+    private int[] line;
+    private int[] type;
+    private int[] first;
+    private int nodes = 0;
+    private int[] fields;
+    private int nfields = 0;
+
+    private int[] listLine;
+    private int[] listStart;
+    private int[] listLength;
+    private int lists = 0;
+    private int[] elements;
+    private int nelements = 0;
+
+    /** The symbols of the file, interned into the current tables, by
+     * their number in the file */
+    private AbstractSymbol[] ids;
+    private AbstractSymbol[] strings;
+    private AbstractSymbol[] ints;
+
+    private ByteBuffer in;
+
+    /** Reads an arena from a binary AST.
+     *
+     * @param in the file's contents, from its current position
+     * */
+    AstArena(ByteBuffer in) throws IOException {
+	this.in = in;
+	// an AST's nodes and list entries take at least a few bytes each
+	int guess = Math.max(16, in.remaining() / 4);
+	kind = new byte[guess];
+	line = new int[guess];
+	type = new int[guess];
+	first = new int[guess];
+	fields = new int[2 * guess];
+	listLine = new int[guess / 4];
+	listStart = new int[guess / 4];
+	listLength = new int[guess / 4];
+	elements = new int[guess / 2];
+
+	AstReader symbols = new AstReader(in);
+	ids = symbols.ids();
+	strings = symbols.strings();
+	ints = symbols.ints();
+	try {
+	    expect(AstWriter.PROGRAM);
+	    int n = node(AstWriter.PROGRAM, readInt());
+	    fields[first[n]] = list(CLASSES);
+	} catch (RuntimeException ex) {
+	    // a truncated buffer or a bad index
+	    throw new IOException("malformed binary AST: " + ex);
+	}
+	this.in = null;
+	trim();
+    }
+
+    /** Reads the arena of the binary AST in the given file. */
+    static AstArena read(String filename) throws IOException {
+	FileInputStream file = new FileInputStream(filename);
+	ByteBuffer buf;
+	try {
+	    FileChannel channel = file.getChannel();
+	    buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	} finally {
+	    file.close();
+	}
+	return new AstArena(buf);
+    }
+
+    /** Builds the arena of a tree. */
+    static AstArena build(Program program) throws IOException {
+	ByteArrayOutputStream buf = new ByteArrayOutputStream();
+	new AstWriter(buf).write(program);
+	return new AstArena(ByteBuffer.wrap(buf.toByteArray()));
+    }
+
+    int nodeCount() {
+	return nodes;
+    }
+
+    /** An estimate of the memory the arena takes, in bytes */
+    long bytes() {
+	long b = (long)nodes * (1 + 4 * 3) + (long)nfields * 4;
+	b += (long)lists * 4 * 3 + (long)nelements * 4;
+	return b;
+    }
+
+    // the kinds of lists, for reading
+    private static final int CLASSES = 0;
+    private static final int FEATURES = 1;
+    private static final int FORMALS = 2;
+    private static final int CASES = 3;
+    private static final int EXPRESSIONS = 4;
+
+    /** The number of fields of each kind of node */
+    private static final int[] ARITY = new int[AstWriter.OBJECT + 1];
+    static {
+	ARITY[AstWriter.PROGRAM] = 1;
+	ARITY[AstWriter.CLASS] = 4;
+	ARITY[AstWriter.METHOD] = 4;
+	ARITY[AstWriter.ATTR] = 3;
+	ARITY[AstWriter.FORMAL] = 2;
+	ARITY[AstWriter.BRANCH] = 3;
+	ARITY[AstWriter.ASSIGN] = 2;
+	ARITY[AstWriter.STATIC_DISPATCH] = 4;
+	ARITY[AstWriter.DISPATCH] = 3;
+	ARITY[AstWriter.COND] = 3;
+	ARITY[AstWriter.LOOP] = 2;
+	ARITY[AstWriter.TYPCASE] = 2;
+	ARITY[AstWriter.BLOCK] = 1;
+	ARITY[AstWriter.LET] = 4;
+	ARITY[AstWriter.PLUS] = 2;
+	ARITY[AstWriter.SUB] = 2;
+	ARITY[AstWriter.MUL] = 2;
+	ARITY[AstWriter.DIVIDE] = 2;
+	ARITY[AstWriter.NEG] = 1;
+	ARITY[AstWriter.LT] = 2;
+	ARITY[AstWriter.EQ] = 2;
+	ARITY[AstWriter.LEQ] = 2;
+	ARITY[AstWriter.COMP] = 1;
+	ARITY[AstWriter.INT_CONST] = 1;
+	ARITY[AstWriter.BOOL_CONST] = 1;
+	ARITY[AstWriter.STRING_CONST] = 1;
+	ARITY[AstWriter.NEW] = 1;
+	ARITY[AstWriter.ISVOID] = 1;
+	ARITY[AstWriter.NO_EXPR] = 0;
+	ARITY[AstWriter.OBJECT] = 1;
+    }
+
+    private int node(int tag, int ln) {
+	if (nodes == kind.length) {
+	    int size = 2 * nodes;
+	    kind = grow(kind, size);
+	    line = grow(line, size);
+	    type = grow(type, size);
+	    first = grow(first, size);
+	}
+	if (nfields + 4 > fields.length) {
+	    fields = grow(fields, 2 * fields.length + 4);
+	}
+	kind[nodes] = (byte)tag;
+	line[nodes] = ln;
+	first[nodes] = nfields;
+	nfields += ARITY[tag];
+	return nodes++;
+    }
+
+    /** Reads a list of the given kind and returns its number.  The
+     * elements of a list are read before their numbers are stored, and
+     * may contain lists of their own, so the numbers are collected on
+     * the Java stack and then copied into elements together. */
+    private int list(int what) throws IOException {
+	int ln = readInt();
+	int n = readInt();
+	if (n < 0 || n > in.remaining()) {
+	    throw new IOException("malformed binary AST: list of " + n
+				  + " elements");
+	}
+	int[] members = new int[n];
+	for (int i = 0; i < n; i++) {
+	    members[i] = what == EXPRESSIONS ? expression() : element(what);
+	}
+	if (lists == listLine.length) {
+	    int size = 2 * lists + 1;
+	    listLine = grow(listLine, size);
+	    listStart = grow(listStart, size);
+	    listLength = grow(listLength, size);
+	}
+	if (nelements + n > elements.length) {
+	    elements = grow(elements, Math.max(2 * elements.length,
+					       nelements + n));
+	}
+	listLine[lists] = ln;
+	listStart[lists] = nelements;
+	listLength[lists] = n;
+	System.arraycopy(members, 0, elements, nelements, n);
+	nelements += n;
+	return lists++;
+    }
+
+    private int element(int what) throws IOException {
+	int tag = in.get();
+	switch (what) {
+	case CLASSES:
+	    if (tag == AstWriter.CLASS) {
+		int n = node(tag, readInt());
+		fields[first[n]] = symbol(ids);
+		fields[first[n] + 1] = symbol(ids);
+		fields[first[n] + 2] = list(FEATURES);
+		fields[first[n] + 3] = symbol(strings);
+		return n;
+	    }
+	    break;
+	case FEATURES:
+	    if (tag == AstWriter.METHOD) {
+		int n = node(tag, readInt());
+		fields[first[n]] = symbol(ids);
+		fields[first[n] + 1] = list(FORMALS);
+		fields[first[n] + 2] = symbol(ids);
+		fields[first[n] + 3] = expression();
+		return n;
+	    } else if (tag == AstWriter.ATTR) {
+		int n = node(tag, readInt());
+		fields[first[n]] = symbol(ids);
+		fields[first[n] + 1] = symbol(ids);
+		fields[first[n] + 2] = expression();
+		return n;
+	    }
+	    break;
+	case FORMALS:
+	    if (tag == AstWriter.FORMAL) {
+		int n = node(tag, readInt());
+		fields[first[n]] = symbol(ids);
+		fields[first[n] + 1] = symbol(ids);
+		return n;
+	    }
+	    break;
+	case CASES:
+	    if (tag == AstWriter.BRANCH) {
+		int n = node(tag, readInt());
+		fields[first[n]] = symbol(ids);
+		fields[first[n] + 1] = symbol(ids);
+		fields[first[n] + 2] = expression();
+		return n;
+	    }
+	    break;
+	}
+	throw new IOException("malformed binary AST: unexpected tag " + tag);
+    }
+
+    private int expression() throws IOException {
+	int tag = in.get();
+	int n = node(tag, readInt());
+	switch (tag) {
+	case AstWriter.ASSIGN:
+	    fields[first[n]] = symbol(ids);
+	    fields[first[n] + 1] = expression();
+	    break;
+	case AstWriter.STATIC_DISPATCH:
+	    fields[first[n]] = expression();
+	    fields[first[n] + 1] = symbol(ids);
+	    fields[first[n] + 2] = symbol(ids);
+	    fields[first[n] + 3] = list(EXPRESSIONS);
+	    break;
+	case AstWriter.DISPATCH:
+	    fields[first[n]] = expression();
+	    fields[first[n] + 1] = symbol(ids);
+	    fields[first[n] + 2] = list(EXPRESSIONS);
+	    break;
+	case AstWriter.COND:
+	    fields[first[n]] = expression();
+	    fields[first[n] + 1] = expression();
+	    fields[first[n] + 2] = expression();
+	    break;
+	case AstWriter.LOOP:
+	case AstWriter.PLUS:
+	case AstWriter.SUB:
+	case AstWriter.MUL:
+	case AstWriter.DIVIDE:
+	case AstWriter.LT:
+	case AstWriter.EQ:
+	case AstWriter.LEQ:
+	    fields[first[n]] = expression();
+	    fields[first[n] + 1] = expression();
+	    break;
+	case AstWriter.TYPCASE:
+	    fields[first[n]] = expression();
+	    fields[first[n] + 1] = list(CASES);
+	    break;
+	case AstWriter.BLOCK:
+	    fields[first[n]] = list(EXPRESSIONS);
+	    break;
+	case AstWriter.LET:
+	    fields[first[n]] = symbol(ids);
+	    fields[first[n] + 1] = symbol(ids);
+	    fields[first[n] + 2] = expression();
+	    fields[first[n] + 3] = expression();
+	    break;
+	case AstWriter.NEG:
+	case AstWriter.COMP:
+	case AstWriter.ISVOID:
+	    fields[first[n]] = expression();
+	    break;
+	case AstWriter.INT_CONST:
+	    fields[first[n]] = symbol(ints);
+	    break;
+	case AstWriter.STRING_CONST:
+	    fields[first[n]] = symbol(strings);
+	    break;
+	case AstWriter.NEW:
+	case AstWriter.OBJECT:
+	    fields[first[n]] = symbol(ids);
+	    break;
+	case AstWriter.BOOL_CONST:
+	    fields[first[n]] = in.get();
+	    break;
+	case AstWriter.NO_EXPR:
+	    break;
+	default:
+	    throw new IOException("malformed binary AST: tag " + tag
+				  + " where an expression was expected");
+	}
+	type[n] = readInt();
+	if (type[n] > ids.length) {
+	    throw new IOException("malformed binary AST: type " + type[n]);
+	}
+	return n;
+    }
+
+    /** Reads the number of a symbol in the given table. */
+    private int symbol(AbstractSymbol[] table) {
+	int i = readInt();
+	if (i >= table.length) {
+	    throw new ArrayIndexOutOfBoundsException(i);
+	}
+	return i;
+    }
+
+    private int readInt() {
+	int b = in.get();
+	int n = b & 0x7f;
+	for (int shift = 7; b < 0; shift += 7) {
+	    b = in.get();
+	    n |= (b & 0x7f) << shift;
+	}
+	return n;
+    }
+
+    private void expect(int tag) throws IOException {
+	int t = in.get();
+	if (t != tag) {
+	    throw new IOException("malformed binary AST: tag " + t
+				  + " where " + tag + " was expected");
+	}
+    }
+
+    private void trim() {
+	kind = grow(kind, nodes);
+	line = grow(line, nodes);
+	type = grow(type, nodes);
+	first = grow(first, nodes);
+	fields = grow(fields, nfields);
+	listLine = grow(listLine, lists);
+	listStart = grow(listStart, lists);
+	listLength = grow(listLength, lists);
+	elements = grow(elements, nelements);
+    }
+
+    private static int[] grow(int[] a, int size) {
+	int[] b = new int[size];
+	System.arraycopy(a, 0, b, 0, Math.min(a.length, size));
+	return b;
+    }
+
+    private static byte[] grow(byte[] a, int size) {
+	byte[] b = new byte[size];
+	System.arraycopy(a, 0, b, 0, Math.min(a.length, size));
+	return b;
+    }
+
+    /* The view of a node.  Node 0 is the program. */
+
+    /** The AstWriter tag of node n */
+    int kind(int n) {
+	return kind[n];
+    }
+
+    int line(int n) {
+	return line[n];
+    }
+
+    /** The type of expression n, or null */
+    AbstractSymbol type(int n) {
+	return type[n] == 0 ? null : ids[type[n] - 1];
+    }
+
+    /** Field k of node n: a node, a list or a symbol number, depending
+     * on the kind of node. */
+    int field(int n, int k) {
+	return fields[first[n] + k];
+    }
+
+    /** The identifier in field k of node n */
+    AbstractSymbol id(int n, int k) {
+	return ids[fields[first[n] + k]];
+    }
+
+    int listLength(int l) {
+	return listLength[l];
+    }
+
+    /** The ith element of list l */
+    int element(int l, int i) {
+	return elements[listStart[l] + i];
+    }
+
+    /** Prints the program as programc.dump_with_types does. */
+    void dump_with_types(PrintStream out, int n) {
+	dump(out, 0, n);
+    }
+
+    private void dump_line(PrintStream out, int n, int node) {
+	out.println(Utilities.pad(n) + "#" + line[node]);
+    }
+
+    private void dump_id(PrintStream out, int n, int node, int k) {
+	out.println(Utilities.pad(n) + ids[fields[first[node] + k]].getString());
+    }
+
+    private void dump_list(PrintStream out, int n, int l) {
+	for (int i = 0; i < listLength[l]; i++) {
+	    dump(out, elements[listStart[l] + i], n);
+	}
+    }
+
+    private void dump(PrintStream out, int node, int n) {
+	int k = kind[node];
+	dump_line(out, n, node);
+	switch (k) {
+	case AstWriter.PROGRAM:
+	    out.println(Utilities.pad(n) + "_program");
+	    dump_list(out, n + 2, fields[first[node]]);
+	    return;
+	case AstWriter.CLASS:
+	    out.println(Utilities.pad(n) + "_class");
+	    dump_id(out, n + 2, node, 0);
+	    dump_id(out, n + 2, node, 1);
+	    out.print(Utilities.pad(n + 2) + "\"");
+	    Utilities.printEscapedString(out,
+					 strings[fields[first[node] + 3]].getString());
+	    out.println("\"\n" + Utilities.pad(n + 2) + "(");
+	    dump_list(out, n + 2, fields[first[node] + 2]);
+	    out.println(Utilities.pad(n + 2) + ")");
+	    return;
+	case AstWriter.METHOD:
+	    out.println(Utilities.pad(n) + "_method");
+	    dump_id(out, n + 2, node, 0);
+	    dump_list(out, n + 2, fields[first[node] + 1]);
+	    dump_id(out, n + 2, node, 2);
+	    dump(out, fields[first[node] + 3], n + 2);
+	    return;
+	case AstWriter.ATTR:
+	    out.println(Utilities.pad(n) + "_attr");
+	    dump_id(out, n + 2, node, 0);
+	    dump_id(out, n + 2, node, 1);
+	    dump(out, fields[first[node] + 2], n + 2);
+	    return;
+	case AstWriter.FORMAL:
+	    out.println(Utilities.pad(n) + "_formal");
+	    dump_id(out, n + 2, node, 0);
+	    dump_id(out, n + 2, node, 1);
+	    return;
+	case AstWriter.BRANCH:
+	    out.println(Utilities.pad(n) + "_branch");
+	    dump_id(out, n + 2, node, 0);
+	    dump_id(out, n + 2, node, 1);
+	    dump(out, fields[first[node] + 2], n + 2);
+	    return;
+	case AstWriter.ASSIGN:
+	    out.println(Utilities.pad(n) + "_assign");
+	    dump_id(out, n + 2, node, 0);
+	    dump(out, fields[first[node] + 1], n + 2);
+	    break;
+	case AstWriter.STATIC_DISPATCH:
+	    out.println(Utilities.pad(n) + "_static_dispatch");
+	    dump(out, fields[first[node]], n + 2);
+	    dump_id(out, n + 2, node, 1);
+	    dump_id(out, n + 2, node, 2);
+	    out.println(Utilities.pad(n + 2) + "(");
+	    dump_list(out, n + 2, fields[first[node] + 3]);
+	    out.println(Utilities.pad(n + 2) + ")");
+	    break;
+	case AstWriter.DISPATCH:
+	    out.println(Utilities.pad(n) + "_dispatch");
+	    dump(out, fields[first[node]], n + 2);
+	    dump_id(out, n + 2, node, 1);
+	    out.println(Utilities.pad(n + 2) + "(");
+	    dump_list(out, n + 2, fields[first[node] + 2]);
+	    out.println(Utilities.pad(n + 2) + ")");
+	    break;
+	case AstWriter.COND:
+	    out.println(Utilities.pad(n) + "_cond");
+	    dump(out, fields[first[node]], n + 2);
+	    dump(out, fields[first[node] + 1], n + 2);
+	    dump(out, fields[first[node] + 2], n + 2);
+	    break;
+	case AstWriter.TYPCASE:
+	    out.println(Utilities.pad(n) + "_typcase");
+	    dump(out, fields[first[node]], n + 2);
+	    dump_list(out, n + 2, fields[first[node] + 1]);
+	    break;
+	case AstWriter.BLOCK:
+	    out.println(Utilities.pad(n) + "_block");
+	    dump_list(out, n + 2, fields[first[node]]);
+	    break;
+	case AstWriter.LET:
+	    out.println(Utilities.pad(n) + "_let");
+	    dump_id(out, n + 2, node, 0);
+	    dump_id(out, n + 2, node, 1);
+	    dump(out, fields[first[node] + 2], n + 2);
+	    dump(out, fields[first[node] + 3], n + 2);
+	    break;
+	case AstWriter.LOOP:
+	case AstWriter.PLUS:
+	case AstWriter.SUB:
+	case AstWriter.MUL:
+	case AstWriter.DIVIDE:
+	case AstWriter.LT:
+	case AstWriter.EQ:
+	case AstWriter.LEQ:
+	    out.println(Utilities.pad(n) + NAMES[k]);
+	    dump(out, fields[first[node]], n + 2);
+	    dump(out, fields[first[node] + 1], n + 2);
+	    break;
+	case AstWriter.NEG:
+	case AstWriter.COMP:
+	case AstWriter.ISVOID:
+	    out.println(Utilities.pad(n) + NAMES[k]);
+	    dump(out, fields[first[node]], n + 2);
+	    break;
+	case AstWriter.INT_CONST:
+	    out.println(Utilities.pad(n) + "_int");
+	    out.println(Utilities.pad(n + 2)
+			+ ints[fields[first[node]]].getString());
+	    break;
+	case AstWriter.BOOL_CONST:
+	    out.println(Utilities.pad(n) + "_bool");
+	    out.print(Utilities.pad(n + 2));
+	    out.println(fields[first[node]] != 0 ? "1" : "0");
+	    break;
+	case AstWriter.STRING_CONST:
+	    out.println(Utilities.pad(n) + "_string");
+	    out.print(Utilities.pad(n + 2) + "\"");
+	    Utilities.printEscapedString(out,
+					 strings[fields[first[node]]].getString());
+	    out.println("\"");
+	    break;
+	case AstWriter.NEW:
+	    out.println(Utilities.pad(n) + "_new");
+	    dump_id(out, n + 2, node, 0);
+	    break;
+	case AstWriter.NO_EXPR:
+	    out.println(Utilities.pad(n) + "_no_expr");
+	    break;
+	case AstWriter.OBJECT:
+	    out.println(Utilities.pad(n) + "_object");
+	    dump_id(out, n + 2, node, 0);
+	    break;
+	}
+	// only expressions get here
+	AbstractSymbol t = type(node);
+	out.println(Utilities.pad(n) + ": "
+		    + (t != null ? t.getString() : "_no_type"));
+    }
+
+    /** The dump_with_types names of the kinds that print nothing but
+     * their subexpressions */
+    private static final String[] NAMES = new String[AstWriter.OBJECT + 1];
+    static {
+	NAMES[AstWriter.LOOP] = "_loop";
+	NAMES[AstWriter.PLUS] = "_plus";
+	NAMES[AstWriter.SUB] = "_sub";
+	NAMES[AstWriter.MUL] = "_mul";
+	NAMES[AstWriter.DIVIDE] = "_divide";
+	NAMES[AstWriter.LT] = "_lt";
+	NAMES[AstWriter.EQ] = "_eq";
+	NAMES[AstWriter.LEQ] = "_leq";
+	NAMES[AstWriter.NEG] = "_neg";
+	NAMES[AstWriter.COMP] = "_comp";
+	NAMES[AstWriter.ISVOID] = "_isvoid";
+    }
+
+    /** Builds the tree of the program. */
+    programc toTree() {
+	return new programc(line[0], (Classes)list(fields[first[0]],
+						   new Classes(0)));
+    }
+
+    /** Builds list l.  The list given supplies the class; the one built
+     * has l's line number. */
+    private ListNode list(int l, ListNode like) {
+	TreeNode[] members = new TreeNode[listLength[l]];
+	for (int i = 0; i < members.length; i++) {
+	    members[i] = tree(elements[listStart[l] + i]);
+	}
+	int ln = listLine[l];
+	if (like instanceof Classes) {
+	    return new Classes(ln, members);
+	} else if (like instanceof Features) {
+	    return new Features(ln, members);
+	} else if (like instanceof Formals) {
+	    return new Formals(ln, members);
+	} else if (like instanceof Cases) {
+	    return new Cases(ln, members);
+	}
+	return new Expressions(ln, members);
+    }
+
+    private Expression expr(int n) {
+	return (Expression)tree(fields[first[n]]);
+    }
+
+    private Expression expr(int n, int k) {
+	return (Expression)tree(fields[first[n] + k]);
+    }
+
+    private Expressions exprs(int n, int k) {
+	return (Expressions)list(fields[first[n] + k], new Expressions(0));
+    }
+
+    /** Builds node n and its subtree. */
+    private TreeNode tree(int n) {
+	int ln = line[n];
+	Expression e;
+	switch (kind[n]) {
+	case AstWriter.CLASS:
+	    return new class_c(ln, id(n, 0), id(n, 1),
+			       (Features)list(fields[first[n] + 2], new Features(0)),
+			       strings[fields[first[n] + 3]]);
+	case AstWriter.METHOD:
+	    return new method(ln, id(n, 0),
+			      (Formals)list(fields[first[n] + 1], new Formals(0)),
+			      id(n, 2), expr(n, 3));
+	case AstWriter.ATTR:
+	    return new attr(ln, id(n, 0), id(n, 1), expr(n, 2));
+	case AstWriter.FORMAL:
+	    return new formalc(ln, id(n, 0), id(n, 1));
+	case AstWriter.BRANCH:
+	    return new branch(ln, id(n, 0), id(n, 1), expr(n, 2));
+	case AstWriter.ASSIGN:
+	    e = new assign(ln, id(n, 0), expr(n, 1));
+	    break;
+	case AstWriter.STATIC_DISPATCH:
+	    e = new static_dispatch(ln, expr(n), id(n, 1), id(n, 2),
+				    exprs(n, 3));
+	    break;
+	case AstWriter.DISPATCH:
+	    e = new dispatch(ln, expr(n), id(n, 1), exprs(n, 2));
+	    break;
+	case AstWriter.COND:
+	    e = new cond(ln, expr(n), expr(n, 1), expr(n, 2));
+	    break;
+	case AstWriter.LOOP:
+	    e = new loop(ln, expr(n), expr(n, 1));
+	    break;
+	case AstWriter.TYPCASE:
+	    e = new typcase(ln, expr(n),
+			    (Cases)list(fields[first[n] + 1], new Cases(0)));
+	    break;
+	case AstWriter.BLOCK:
+	    e = new block(ln, exprs(n, 0));
+	    break;
+	case AstWriter.LET:
+	    e = new let(ln, id(n, 0), id(n, 1), expr(n, 2), expr(n, 3));
+	    break;
+	case AstWriter.PLUS:
+	    e = new plus(ln, expr(n), expr(n, 1));
+	    break;
+	case AstWriter.SUB:
+	    e = new sub(ln, expr(n), expr(n, 1));
+	    break;
+	case AstWriter.MUL:
+	    e = new mul(ln, expr(n), expr(n, 1));
+	    break;
+	case AstWriter.DIVIDE:
+	    e = new divide(ln, expr(n), expr(n, 1));
+	    break;
+	case AstWriter.NEG:
+	    e = new neg(ln, expr(n));
+	    break;
+	case AstWriter.LT:
+	    e = new lt(ln, expr(n), expr(n, 1));
+	    break;
+	case AstWriter.EQ:
+	    e = new eq(ln, expr(n), expr(n, 1));
+	    break;
+	case AstWriter.LEQ:
+	    e = new leq(ln, expr(n), expr(n, 1));
+	    break;
+	case AstWriter.COMP:
+	    e = new comp(ln, expr(n));
+	    break;
+	case AstWriter.INT_CONST:
+	    e = new int_const(ln, ints[fields[first[n]]]);
+	    break;
+	case AstWriter.BOOL_CONST:
+	    e = new bool_const(ln, fields[first[n]] != 0 ? Boolean.TRUE
+			       : Boolean.FALSE);
+	    break;
+	case AstWriter.STRING_CONST:
+	    e = new string_const(ln, strings[fields[first[n]]]);
+	    break;
+	case AstWriter.NEW:
+	    e = new new_(ln, id(n, 0));
+	    break;
+	case AstWriter.ISVOID:
+	    e = new isvoid(ln, expr(n));
+	    break;
+	case AstWriter.NO_EXPR:
+	    e = new no_expr(ln);
+	    break;
+	default:
+	    e = new object(ln, id(n, 0));
+	    break;
+	}
+	e.set_type(type(n));
+	return e;
+    }
+}
@@ -0,0 +1,333 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** Rebuilds an AST from the binary format written by AstWriter.
+ *
+ * The input is a ByteBuffer, normally a memory-mapped file, and the
+ * nodes are built directly from its bytes with no stream or copy in
+ * between.  The symbols section, which holds only the symbols of the
+ * program, is interned into the current tables first, so the rebuilt
+ * AST uses the same symbols as one built by the parser (those in
+ * TreeConstants in particular).  The nodes refer to symbols by their
+ * number in the file, which the arrays returned by ids(), strings() and
+ * ints() map to the interned symbols.
+ *
+ * A malformed file makes read() throw an IOException rather than build
+ * a broken tree.
+ * */
+class AstReader {
+    private ByteBuffer in;
+
+    /** The symbols of the file, interned, by their number in it */
+    private AbstractSymbol[] ids;
+    private AbstractSymbol[] strings;
+    private AbstractSymbol[] ints;
+
+    /** Scratch space for strings when the buffer has no array */
+    private byte[] bytes = new byte[256];
+
+    /** Reads the header and the symbols section.
+     *
+     * @param in the file's contents, from its current position
+     * */
+    AstReader(ByteBuffer in) throws IOException {
+	this.in = in;
+	if (!isAst(in)) {
+	    throw new IOException("not a binary AST");
+	}
+	in.position(in.position() + AstWriter.MAGIC.length);
+	int version = in.get() & 0xff;
+	if (version != AstWriter.VERSION) {
+	    throw new IOException("unsupported binary AST version " + version);
+	}
+	// the shared tables intern with a hash lookup instead of a scan
+	SharedTables.install();
+	try {
+	    ids = readTable(AbstractTable.idtable);
+	    strings = readTable(AbstractTable.stringtable);
+	    ints = readTable(AbstractTable.inttable);
+	} catch (RuntimeException ex) {
+	    throw new IOException("malformed binary AST: " + ex);
+	}
+    }
+
+    /** Does the buffer start with AstWriter's header?  The buffer's
+     * position is left alone. */
+    static boolean isAst(ByteBuffer in) {
+	if (in.remaining() <= AstWriter.MAGIC.length) {
+	    return false;
+	}
+	for (int i = 0; i < AstWriter.MAGIC.length; i++) {
+	    if (in.get(in.position() + i) != AstWriter.MAGIC[i]) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /** Does the file start with AstWriter's header? */
+    static boolean isAstFile(String filename) throws IOException {
+	FileInputStream file = new FileInputStream(filename);
+	try {
+	    byte[] header = new byte[AstWriter.MAGIC.length + 1];
+	    int n = 0;
+	    int r;
+	    while (n < header.length
+		   && (r = file.read(header, n, header.length - n)) > 0) {
+		n += r;
+	    }
+	    return isAst(ByteBuffer.wrap(header, 0, n));
+	} finally {
+	    file.close();
+	}
+    }
+
+    /** Reads the AST in the given file. */
+    static programc read(String filename) throws IOException {
+	FileInputStream file = new FileInputStream(filename);
+	ByteBuffer buf;
+	try {
+	    FileChannel channel = file.getChannel();
+	    buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	} finally {
+	    file.close();
+	}
+	return new AstReader(buf).read();
+    }
+
+    /** The identifiers of the file, interned, by their number in it */
+    AbstractSymbol[] ids() {
+	return ids;
+    }
+
+    AbstractSymbol[] strings() {
+	return strings;
+    }
+
+    AbstractSymbol[] ints() {
+	return ints;
+    }
+
+    /** Reads the program that follows the symbols. */
+    programc read() throws IOException {
+	try {
+	    expect(AstWriter.PROGRAM);
+	    return new programc(readInt(), classes());
+	} catch (RuntimeException ex) {
+	    // a truncated buffer, a bad index or a node of the wrong kind
+	    throw new IOException("malformed binary AST: " + ex);
+	}
+    }
+
+    private AbstractSymbol[] readTable(AbstractTable table)
+	throws IOException {
+	int n = readInt();
+	AbstractSymbol[] symbols = new AbstractSymbol[n];
+	for (int i = 0; i < n; i++) {
+	    int len = readInt();
+	    String s;
+	    if (in.hasArray()) {
+		s = new String(in.array(), in.arrayOffset() + in.position(),
+			       len, "UTF-8");
+		in.position(in.position() + len);
+	    } else {
+		if (len > bytes.length) {
+		    bytes = new byte[Math.max(len, 2 * bytes.length)];
+		}
+		in.get(bytes, 0, len);
+		s = new String(bytes, 0, len, "UTF-8");
+	    }
+	    symbols[i] = table.addString(s);
+	}
+	return symbols;
+    }
+
+    private int readInt() {
+	int b = in.get();
+	int n = b & 0x7f;
+	for (int shift = 7; b < 0; shift += 7) {
+	    b = in.get();
+	    n |= (b & 0x7f) << shift;
+	}
+	return n;
+    }
+
+    private void expect(int tag) throws IOException {
+	int t = in.get();
+	if (t != tag) {
+	    throw new IOException("malformed binary AST: tag " + t
+				  + " where " + tag + " was expected");
+	}
+    }
+
+    private AbstractSymbol id() {
+	return ids[readInt()];
+    }
+
+    private AbstractSymbol type() {
+	int t = readInt();
+	return t == 0 ? null : ids[t - 1];
+    }
+
+    /** Reads the length of a list and makes the array for its
+     * elements, which are built straight into it. */
+    private TreeNode[] elements() throws IOException {
+	int n = readInt();
+	// every element takes at least a byte
+	if (n < 0 || n > in.remaining()) {
+	    throw new IOException("malformed binary AST: list of " + n
+				  + " elements");
+	}
+	return new TreeNode[n];
+    }
+
+    private Classes classes() throws IOException {
+	int line = readInt();
+	TreeNode[] list = elements();
+	for (int i = 0; i < list.length; i++) {
+	    expect(AstWriter.CLASS);
+	    list[i] = new class_c(readInt(), id(), id(), features(),
+				  strings[readInt()]);
+	}
+	return new Classes(line, list);
+    }
+
+    private Features features() throws IOException {
+	int line = readInt();
+	TreeNode[] list = elements();
+	for (int i = 0; i < list.length; i++) {
+	    int tag = in.get();
+	    if (tag == AstWriter.METHOD) {
+		list[i] = new method(readInt(), id(), formals(), id(),
+				     expression());
+	    } else if (tag == AstWriter.ATTR) {
+		list[i] = new attr(readInt(), id(), id(), expression());
+	    } else {
+		throw new IOException("malformed binary AST: tag " + tag
+				      + " where a feature was expected");
+	    }
+	}
+	return new Features(line, list);
+    }
+
+    private Formals formals() throws IOException {
+	int line = readInt();
+	TreeNode[] list = elements();
+	for (int i = 0; i < list.length; i++) {
+	    expect(AstWriter.FORMAL);
+	    list[i] = new formalc(readInt(), id(), id());
+	}
+	return new Formals(line, list);
+    }
+
+    private Cases cases() throws IOException {
+	int line = readInt();
+	TreeNode[] list = elements();
+	for (int i = 0; i < list.length; i++) {
+	    expect(AstWriter.BRANCH);
+	    list[i] = new branch(readInt(), id(), id(), expression());
+	}
+	return new Cases(line, list);
+    }
+
+    private Expressions expressions() throws IOException {
+	int line = readInt();
+	TreeNode[] list = elements();
+	for (int i = 0; i < list.length; i++) {
+	    list[i] = expression();
+	}
+	return new Expressions(line, list);
+    }
+
+    /** Reads one expression.  Java evaluates the arguments of the
+     * constructors below left to right, which is the order the fields
+     * were written in. */
+    private Expression expression() throws IOException {
+	int tag = in.get();
+	int line = readInt();
+	Expression e;
+	switch (tag) {
+	case AstWriter.ASSIGN:
+	    e = new assign(line, id(), expression());
+	    break;
+	case AstWriter.STATIC_DISPATCH:
+	    e = new static_dispatch(line, expression(), id(), id(),
+				    expressions());
+	    break;
+	case AstWriter.DISPATCH:
+	    e = new dispatch(line, expression(), id(), expressions());
+	    break;
+	case AstWriter.COND:
+	    e = new cond(line, expression(), expression(), expression());
+	    break;
+	case AstWriter.LOOP:
+	    e = new loop(line, expression(), expression());
+	    break;
+	case AstWriter.TYPCASE:
+	    e = new typcase(line, expression(), cases());
+	    break;
+	case AstWriter.BLOCK:
+	    e = new block(line, expressions());
+	    break;
+	case AstWriter.LET:
+	    e = new let(line, id(), id(), expression(), expression());
+	    break;
+	case AstWriter.PLUS:
+	    e = new plus(line, expression(), expression());
+	    break;
+	case AstWriter.SUB:
+	    e = new sub(line, expression(), expression());
+	    break;
+	case AstWriter.MUL:
+	    e = new mul(line, expression(), expression());
+	    break;
+	case AstWriter.DIVIDE:
+	    e = new divide(line, expression(), expression());
+	    break;
+	case AstWriter.NEG:
+	    e = new neg(line, expression());
+	    break;
+	case AstWriter.LT:
+	    e = new lt(line, expression(), expression());
+	    break;
+	case AstWriter.EQ:
+	    e = new eq(line, expression(), expression());
+	    break;
+	case AstWriter.LEQ:
+	    e = new leq(line, expression(), expression());
+	    break;
+	case AstWriter.COMP:
+	    e = new comp(line, expression());
+	    break;
+	case AstWriter.INT_CONST:
+	    e = new int_const(line, ints[readInt()]);
+	    break;
+	case AstWriter.BOOL_CONST:
+	    e = new bool_const(line,
+			       in.get() != 0 ? Boolean.TRUE : Boolean.FALSE);
+	    break;
+	case AstWriter.STRING_CONST:
+	    e = new string_const(line, strings[readInt()]);
+	    break;
+	case AstWriter.NEW:
+	    e = new new_(line, id());
+	    break;
+	case AstWriter.ISVOID:
+	    e = new isvoid(line, expression());
+	    break;
+	case AstWriter.NO_EXPR:
+	    e = new no_expr(line);
+	    break;
+	case AstWriter.OBJECT:
+	    e = new object(line, id());
+	    break;
+	default:
+	    throw new IOException("malformed binary AST: tag " + tag
+				  + " where an expression was expected");
+	}
+	e.set_type(type());
+	return e;
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Writes an AST in the binary format read by AstReader.
+ *
+ * The text that dump_with_types prints has to be lexed and parsed again
+ * by the next phase; this format is instead read back with one pass and
+ * no tokenizing.  A file is laid out as
+ * <pre>
+ *   header     the bytes "COOLAST" and a version byte
+ *   symbols    the identifiers, then the strings, then the integers
+ *              the program uses: a count, then for each symbol its
+ *              length in UTF-8 bytes and the bytes
+ *   nodes      the program in preorder
+ * </pre>
+ * Numbers are written as unsigned varints, seven bits per byte with the
+ * high bit set on all but the last byte.  A node is its tag (one of the
+ * constants below), its line number and its fields in the order of the
+ * constructor's arguments.  A symbol field is the symbol's number in
+ * its section of the file, not its index in the compiler's tables: the
+ * file holds only the symbols its program uses, numbered from 0 in the
+ * order they are first met, so its size does not depend on what else
+ * has been interned.  A list is its line number, its length and its
+ * elements.  An expression ends with its type: 0 if it has none,
+ * otherwise 1 + the number of the type among the identifiers.
+ *
+ * The writer does not buffer the tree: write() walks the AST once to
+ * number the symbols, which must come first, and again to write the
+ * nodes.  Output goes through an internal buffer, so the stream need
+ * not be buffered.
+ * */
+class AstWriter {
+    static final byte[] MAGIC = { 'C', 'O', 'O', 'L', 'A', 'S', 'T' };
+    /** Bumped whenever the layout changes */
+    static final int VERSION = 2;
+
+    // node tags
+    static final int PROGRAM = 1;
+    static final int CLASS = 2;
+    static final int METHOD = 3;
+    static final int ATTR = 4;
+    static final int FORMAL = 5;
+    static final int BRANCH = 6;
+    static final int ASSIGN = 7;
+    static final int STATIC_DISPATCH = 8;
+    static final int DISPATCH = 9;
+    static final int COND = 10;
+    static final int LOOP = 11;
+    static final int TYPCASE = 12;
+    static final int BLOCK = 13;
+    static final int LET = 14;
+    static final int PLUS = 15;
+    static final int SUB = 16;
+    static final int MUL = 17;
+    static final int DIVIDE = 18;
+    static final int NEG = 19;
+    static final int LT = 20;
+    static final int EQ = 21;
+    static final int LEQ = 22;
+    static final int COMP = 23;
+    static final int INT_CONST = 24;
+    static final int BOOL_CONST = 25;
+    static final int STRING_CONST = 26;
+    static final int NEW = 27;
+    static final int ISVOID = 28;
+    static final int NO_EXPR = 29;
+    static final int OBJECT = 30;
+
+    private OutputStream out;
+    private byte[] buf = new byte[8192];
+    private int pos = 0;
+
+    /** The symbols of the program being written, by kind */
+    private Numbering ids;
+    private Numbering strings;
+    private Numbering ints;
+
+    /** Set during the first walk, which writes nothing */
+    private boolean numbering = false;
+
+    /** Numbers symbols from 0 in the order they are first given.  Open
+     * addressed on the symbol's index, comparing symbols by identity. */
+    static class Numbering {
+	private AbstractSymbol[] keys = new AbstractSymbol[64];
+	private int[] numbers = new int[64];
+	private AbstractSymbol[] symbols = new AbstractSymbol[32];
+	private int size = 0;
+
+	/** The number of the symbol, which is given the next one if it
+	 * has none yet. */
+	int number(AbstractSymbol sym) {
+	    int i = slot(keys, sym);
+	    if (keys[i] == sym) {
+		return numbers[i];
+	    }
+	    if (2 * (size + 1) > keys.length) {
+		rehash();
+		i = slot(keys, sym);
+	    }
+	    if (size == symbols.length) {
+		AbstractSymbol[] s = new AbstractSymbol[2 * size];
+		System.arraycopy(symbols, 0, s, 0, size);
+		symbols = s;
+	    }
+	    keys[i] = sym;
+	    numbers[i] = size;
+	    symbols[size] = sym;
+	    return size++;
+	}
+
+	int size() {
+	    return size;
+	}
+
+	/** The symbol numbered n */
+	AbstractSymbol symbol(int n) {
+	    return symbols[n];
+	}
+
+	private static int slot(AbstractSymbol[] keys, AbstractSymbol sym) {
+	    int mask = keys.length - 1;
+	    int i = sym.index & mask;
+	    while (keys[i] != null && keys[i] != sym) {
+		i = (i + 1) & mask;
+	    }
+	    return i;
+	}
+
+	private void rehash() {
+	    AbstractSymbol[] k = keys;
+	    int[] n = numbers;
+	    keys = new AbstractSymbol[2 * k.length];
+	    numbers = new int[2 * k.length];
+	    for (int j = 0; j < k.length; j++) {
+		if (k[j] != null) {
+		    int i = slot(keys, k[j]);
+		    keys[i] = k[j];
+		    numbers[i] = n[j];
+		}
+	    }
+	}
+    }
+
+    AstWriter(OutputStream out) {
+	this.out = out;
+    }
+
+    /** Writes a whole file: header, symbols and the program. */
+    void write(Program program) throws IOException {
+	ids = new Numbering();
+	strings = new Numbering();
+	ints = new Numbering();
+	numbering = true;
+	try {
+	    program.write(this);
+	} finally {
+	    numbering = false;
+	}
+	for (int i = 0; i < MAGIC.length; i++) {
+	    writeByte(MAGIC[i]);
+	}
+	writeByte(VERSION);
+	writeTable(ids);
+	writeTable(strings);
+	writeTable(ints);
+	program.write(this);
+	flush();
+    }
+
+    private void writeTable(Numbering symbols) throws IOException {
+	writeInt(symbols.size());
+	for (int i = 0; i < symbols.size(); i++) {
+	    String str = symbols.symbol(i).getString();
+	    byte[] b = str.getBytes("UTF-8");
+	    writeInt(b.length);
+	    if (pos + b.length > buf.length) {
+		drain();
+	    }
+	    if (b.length > buf.length) {
+		out.write(b);
+	    } else {
+		System.arraycopy(b, 0, buf, pos, b.length);
+		pos += b.length;
+	    }
+	}
+    }
+
+    void writeByte(int b) throws IOException {
+	if (numbering) {
+	    return;
+	}
+	if (pos == buf.length) {
+	    drain();
+	}
+	buf[pos++] = (byte)b;
+    }
+
+    void writeInt(int n) throws IOException {
+	if (numbering) {
+	    return;
+	}
+	if (pos + 5 > buf.length) {
+	    drain();
+	}
+	while ((n & ~0x7f) != 0) {
+	    buf[pos++] = (byte)((n & 0x7f) | 0x80);
+	    n >>>= 7;
+	}
+	buf[pos++] = (byte)n;
+    }
+
+    /** Starts a node. */
+    void writeNode(int tag, int line) throws IOException {
+	writeByte(tag);
+	writeInt(line);
+    }
+
+    /** Writes an identifier. */
+    void writeSymbol(AbstractSymbol sym) throws IOException {
+	writeInt(ids.number(sym));
+    }
+
+    /** Writes a string constant (or a file name). */
+    void writeStringSymbol(AbstractSymbol sym) throws IOException {
+	writeInt(strings.number(sym));
+    }
+
+    /** Writes an integer constant. */
+    void writeIntSymbol(AbstractSymbol sym) throws IOException {
+	writeInt(ints.number(sym));
+    }
+
+    /** Writes the type of an expression, which may be null. */
+    void writeType(AbstractSymbol type) throws IOException {
+	writeInt(type == null ? 0 : ids.number(type) + 1);
+    }
+
+    /** Starts a list. */
+    void writeList(ListNode list) throws IOException {
+	writeInt(list.getLineNumber());
+	writeInt(list.getLength());
+    }
+
+    /** Passes the buffered bytes on to the stream. */
+    private void drain() throws IOException {
+	out.write(buf, 0, pos);
+	pos = 0;
+    }
+
+    void flush() throws IOException {
+	drain();
+	out.flush();
+    }
+}
@@ -0,0 +1,423 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+import java_cup.runtime.Symbol;
+
+/** Benchmarks for the front end phases.
+ *
+ * The input is a synthetic program built from the given Cool files,
+ * which should be valid programs (e.g. the larger ones in
+ * ../PA2J/grading).  The files are copied over and over until the
+ * program has the requested number of classes; every copy renames its
+ * classes with a fresh suffix so that the result is still one valid
+ * program.  Only the first copy of the first file keeps class Main.
+ *
+ * Each phase is run a number of times to warm up the JIT and then
+ * timed.  Usage:
+ * <pre>
+ *   java Bench [-c classes] [-w warmups] [-i iterations] [-p phase]
+ *              [-j threads] file ...
+ * </pre>
+ * -c may be given several times to run each size.  -j sets the threads
+ * semant and recheck type check with (see TypeEnv.checkAll).  The phases are
+ * lex, parse (which includes lexing), classtable, semant, recheck, text,
+ * binary, arena and memory; by default all of them are run.  recheck
+ * measures IncrementalSemant after one class has been replaced by a copy
+ * of itself, which is what an edit inside one method body looks like to
+ * it.  text and binary measure handing the typed AST to the next
+ * phase: dump_with_types and ASTParser, or AstWriter and AstReader;
+ * arena reads the same bytes into an AstArena instead.  memory is not
+ * timed: it prints the heap taken by the typed AST as a tree of objects
+ * and as an arena.
+ * */
+class Bench {
+    static int warmups = 5;
+    static int iterations = 10;
+
+    /** A phase being measured */
+    static abstract class Phase {
+	String name;
+
+	Phase(String name) {
+	    this.name = name;
+	}
+
+	/** Runs the phase once over the program.
+	 *
+	 * @return the number of units processed (tokens or classes)
+	 * */
+	abstract long run(String source, programc program) throws Exception;
+
+	/** What run() counts */
+	abstract String unit();
+    }
+
+    static long lex(String source) throws IOException {
+	CoolLexer lexer = new CoolLexer(new StringReader(source));
+	long tokens = 0;
+	while (lexer.next_token().sym != TokenConstants.EOF) {
+	    tokens++;
+	}
+	return tokens;
+    }
+
+    static programc parse(String source, String filename) throws Exception {
+	CoolLexer lexer = new CoolLexer(new StringReader(source));
+	lexer.set_filename(filename);
+	CoolParser parser = new CoolParser(lexer);
+	Symbol result = parser.parse();
+	if (parser.omerrs > 0) {
+	    Utilities.fatalError("Benchmark input " + filename
+				 + " has syntax errors");
+	}
+	return (programc)result.value;
+    }
+
+    static Phase[] phases = {
+	new Phase("lex") {
+	    long run(String source, programc program) throws Exception {
+		return lex(source);
+	    }
+
+	    String unit() {
+		return "tokens";
+	    }
+	},
+	new Phase("parse") {
+	    long run(String source, programc program) throws Exception {
+		return parse(source, "<bench>").classes.getLength();
+	    }
+
+	    String unit() {
+		return "classes";
+	    }
+	},
+	new Phase("classtable") {
+	    long run(String source, programc program) {
+		new ClassTable(program.classes);
+		return program.classes.getLength();
+	    }
+
+	    String unit() {
+		return "classes";
+	    }
+	},
+	new Phase("semant") {
+	    long run(String source, programc program) {
+		program.semant();
+		return program.classes.getLength();
+	    }
+
+	    String unit() {
+		return "classes";
+	    }
+	},
+	new Phase("recheck") {
+	    IncrementalSemant checker;
+	    programc checked;
+	    int edited;
+
+	    long run(String source, programc program) {
+		if (program != checked) {
+		    checker = new IncrementalSemant();
+		    checker.check(program);
+		    checked = program;
+		}
+		// replace the next class by a copy, leaving the others alone
+		Classes cls = new Classes(program.classes.getLineNumber());
+		int n = program.classes.getLength();
+		edited = (edited + 1) % n;
+		for (int i = 0; i < n; i++) {
+		    TreeNode c = program.classes.getNth(i);
+		    cls.appendElement(i == edited ? c.copy() : c);
+		}
+		checker.check(new programc(program.getLineNumber(), cls));
+		return n;
+	    }
+
+	    String unit() {
+		return "classes";
+	    }
+	},
+	new Phase("text") {
+	    long run(String source, programc program) throws Exception {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(buf);
+		program.dump_with_types(out, 0);
+		out.flush();
+		ASTParser parser = new ASTParser(new ASTLexer(
+		    new InputStreamReader(
+			new ByteArrayInputStream(buf.toByteArray()))));
+		parser.parse();
+		return program.classes.getLength();
+	    }
+
+	    String unit() {
+		return "classes";
+	    }
+	},
+	new Phase("binary") {
+	    long run(String source, programc program) throws Exception {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		new AstWriter(buf).write(program);
+		new AstReader(ByteBuffer.wrap(buf.toByteArray())).read();
+		return program.classes.getLength();
+	    }
+
+	    String unit() {
+		return "classes";
+	    }
+	},
+	new Phase("arena") {
+	    long run(String source, programc program) throws Exception {
+		return AstArena.build(program).nodeCount();
+	    }
+
+	    String unit() {
+		return "nodes";
+	    }
+	},
+    };
+
+    /** Replaces every occurrence of the given class names in a Cool
+     * source, outside of strings and comments. */
+    static String rename(String src, Hashtable names) {
+	StringBuffer out = new StringBuffer(src.length() + src.length() / 4);
+	int n = src.length();
+	int i = 0;
+	while (i < n) {
+	    char c = src.charAt(i);
+	    int start = i;
+	    if (c == '"') {
+		for (i++; i < n && src.charAt(i) != '"'; i++) {
+		    if (src.charAt(i) == '\\') {
+			i++;
+		    }
+		}
+		i = Math.min(i + 1, n);
+	    } else if (src.startsWith("--", i)) {
+		while (i < n && src.charAt(i) != '\n') {
+		    i++;
+		}
+	    } else if (src.startsWith("(*", i)) {
+		int depth = 0;
+		do {
+		    if (src.startsWith("(*", i)) {
+			depth++;
+			i += 2;
+		    } else if (src.startsWith("*)", i)) {
+			depth--;
+			i += 2;
+		    } else {
+			i++;
+		    }
+		} while (depth > 0 && i < n);
+	    } else if (Character.isLetter(c)) {
+		while (i < n && (Character.isLetterOrDigit(src.charAt(i))
+				 || src.charAt(i) == '_')) {
+		    i++;
+		}
+		String renamed = (String)names.get(src.substring(start, i));
+		if (renamed != null) {
+		    out.append(renamed);
+		    continue;
+		}
+	    } else {
+		i++;
+	    }
+	    out.append(src, start, i);
+	}
+	return out.toString();
+    }
+
+    /** Builds a program of at least the given number of classes out of
+     * copies of the given sources. */
+    static String corpus(String[] sources, programc[] programs, int classes) {
+	StringBuffer buf = new StringBuffer();
+	int count = 0;
+	for (int copy = 0; count < classes; copy++) {
+	    for (int f = 0; f < sources.length && count < classes; f++) {
+		Hashtable names = new Hashtable();
+		Classes cls = programs[f].classes;
+		for (Enumeration e = cls.getElements(); e.hasMoreElements(); ) {
+		    String name = ((class_c)e.nextElement()).getName().getString();
+		    if (copy > 0 || f > 0 || !name.equals("Main")) {
+			names.put(name, name + "_" + f + "_" + copy);
+		    }
+		}
+		buf.append(rename(sources[f], names));
+		buf.append('\n');
+		count += cls.getLength();
+	    }
+	}
+	return buf.toString();
+    }
+
+    static String read(String filename) throws IOException {
+	FileReader in = new FileReader(filename);
+	StringBuffer buf = new StringBuffer();
+	char[] chunk = new char[4096];
+	int n;
+	while ((n = in.read(chunk)) > 0) {
+	    buf.append(chunk, 0, n);
+	}
+	in.close();
+	return buf.toString();
+    }
+
+    static void measure(Phase phase, String source, programc program)
+	throws Exception {
+	long units = 0;
+	for (int i = 0; i < warmups; i++) {
+	    units = phase.run(source, program);
+	}
+	long total = 0;
+	long best = Long.MAX_VALUE;
+	for (int i = 0; i < iterations; i++) {
+	    long start = System.nanoTime();
+	    phase.run(source, program);
+	    long t = System.nanoTime() - start;
+	    total += t;
+	    best = Math.min(best, t);
+	}
+	double mean = total / (double)iterations / 1e6;
+	System.out.println(phase.name + "\t" + program.classes.getLength()
+			   + "\t" + round(mean) + "\t" + round(best / 1e6)
+			   + "\t" + (long)(units / (mean / 1e3))
+			   + " " + phase.unit() + "/s");
+    }
+
+    /** Keeps what memory() measures reachable */
+    static Object kept;
+
+    static long heap() {
+	Runtime rt = Runtime.getRuntime();
+	for (int i = 0; i < 3; i++) {
+	    System.gc();
+	}
+	return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /** Prints the heap taken by the typed program as a tree and as an
+     * arena.  Both are read from the same binary AST, whose symbols are
+     * interned by then, so only the nodes are counted. */
+    static void memory(programc program) throws Exception {
+	program.semant();
+	ByteArrayOutputStream buf = new ByteArrayOutputStream();
+	new AstWriter(buf).write(program);
+	byte[] bytes = buf.toByteArray();
+	new AstReader(ByteBuffer.wrap(bytes)).read();
+
+	long before = heap();
+	kept = new AstReader(ByteBuffer.wrap(bytes)).read();
+	long tree = heap() - before;
+	kept = null;
+	before = heap();
+	AstArena arena = new AstArena(ByteBuffer.wrap(bytes));
+	kept = arena;
+	long packed = heap() - before;
+	kept = null;
+	System.out.println("memory\t" + program.classes.getLength()
+			   + "\t" + arena.nodeCount() + " nodes\t"
+			   + tree / 1024 + " KB tree\t" + packed / 1024
+			   + " KB arena");
+    }
+
+    static double round(double ms) {
+	return Math.round(ms * 1000) / 1000.0;
+    }
+
+    private static void usage() {
+	Utilities.fatalError("usage: Bench [-c classes] [-w warmups] "
+			     + "[-i iterations] [-p phase] [-j threads] file ...");
+    }
+
+    /** The number an option takes; anything else is a usage error. */
+    private static int number(String arg) {
+	try {
+	    return Integer.parseInt(arg);
+	} catch (NumberFormatException ex) {
+	    usage();
+	    return 0;
+	}
+    }
+
+    /** Is name a phase -p can select? */
+    private static boolean isPhase(String name) {
+	for (int p = 0; p < phases.length; p++) {
+	    if (phases[p].name.equals(name)) {
+		return true;
+	    }
+	}
+	return name.equals("memory");
+    }
+
+    public static void main(String[] args) throws Exception {
+	Vector sizes = new Vector();
+	Vector files = new Vector();
+	String only = null;
+	for (int i = 0; i < args.length; i++) {
+	    if (args[i].equals("-c") && i + 1 < args.length) {
+		sizes.addElement(Integer.valueOf(number(args[++i])));
+	    } else if (args[i].equals("-w") && i + 1 < args.length) {
+		warmups = number(args[++i]);
+	    } else if (args[i].equals("-i") && i + 1 < args.length) {
+		iterations = number(args[++i]);
+	    } else if (args[i].equals("-p") && i + 1 < args.length) {
+		only = args[++i];
+		if (!isPhase(only)) {
+		    usage();
+		}
+	    } else if (args[i].equals("-j") && i + 1 < args.length) {
+		TypeEnv.jobs = number(args[++i]);
+		if (TypeEnv.jobs < 0) {
+		    usage();
+		}
+	    } else if (args[i].startsWith("-")) {
+		// an unknown flag, or one missing its argument
+		usage();
+	    } else {
+		files.addElement(args[i]);
+	    }
+	}
+	if (files.isEmpty()) {
+	    usage();
+	}
+	if (sizes.isEmpty()) {
+	    sizes.addElement(Integer.valueOf(100));
+	    sizes.addElement(Integer.valueOf(1000));
+	    sizes.addElement(Integer.valueOf(10000));
+	}
+
+	String[] sources = new String[files.size()];
+	programc[] programs = new programc[files.size()];
+	for (int i = 0; i < sources.length; i++) {
+	    String filename = (String)files.elementAt(i);
+	    sources[i] = read(filename);
+	    programs[i] = parse(sources[i], filename);
+	}
+
+	System.out.println("phase\tclasses\tmean ms\tmin ms\tthroughput");
+	for (Enumeration e = sizes.elements(); e.hasMoreElements(); ) {
+	    int classes = ((Integer)e.nextElement()).intValue();
+	    String source = corpus(sources, programs, classes);
+	    programc program = parse(source, "<bench>");
+	    for (int p = 0; p < phases.length; p++) {
+		if (only == null || only.equals(phases[p].name)) {
+		    measure(phases[p], source, program);
+		}
+	    }
+	    if (only == null || only.equals("memory")) {
+		memory(program);
+	    }
+	}
+    }
+}
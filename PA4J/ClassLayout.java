@@ -0,0 +1,190 @@
+import java.util.Hashtable;
+
+/** The features objects of one class have, inherited ones included, each
+ * in a fixed slot.
+ *
+ * A class's layout starts with its parent's, so a slot means the same
+ * thing in a class and in all the classes below it: the methods are in
+ * the order of a dispatch table, and the attributes in the order of the
+ * fields of an object.  A method that overrides an inherited one takes
+ * its slot; other methods and the attributes of the class are added at
+ * the end.  Within one class the first of several features of the same
+ * name is the one that counts, and a redefinition of an inherited
+ * attribute takes the inherited slot; both are errors that semant
+ * reports, the layout only has to be well defined.
+ *
+ * ClassTable builds the layouts once, parents first (see also
+ * ClassTable.offer), and they do not change after that.  Building them
+ * takes time linear in their size.
+ * */
+class ClassLayout {
+    private class_c cls;
+    private ClassLayout parent;
+
+    private method[] methods;
+    /** The class that defines the method in each slot */
+    private class_c[] owners;
+    private attr[] attrs;
+
+    /** Name -> Integer slot.  The tables are shared with the first
+     * child that adds features, and then hold the child's names too, so
+     * a slot found in them counts only if it is one of ours and holds a
+     * feature of that name.  Sharing keeps a long chain of classes from
+     * copying the tables at every step. */
+    private Hashtable methodSlots;
+    private Hashtable attrSlots;
+    private boolean lent = false;
+
+    /** Lays out c.
+     *
+     * @param parent the layout of c's parent, or null for Object
+     * */
+    ClassLayout(ClassLayout parent, class_c c) {
+	cls = c;
+	this.parent = parent;
+	int inheritedMethods = 0;
+	int inheritedAttrs = 0;
+	if (parent != null) {
+	    inheritedMethods = parent.methods.length;
+	    inheritedAttrs = parent.attrs.length;
+	}
+	int features = c.getFeatures().getLength();
+	methods = new method[inheritedMethods + features];
+	owners = new class_c[inheritedMethods + features];
+	attrs = new attr[inheritedAttrs + features];
+	int nmethods = inheritedMethods;
+	int nattrs = inheritedAttrs;
+	if (parent == null) {
+	    methodSlots = new Hashtable();
+	    attrSlots = new Hashtable();
+	} else {
+	    System.arraycopy(parent.methods, 0, methods, 0, inheritedMethods);
+	    System.arraycopy(parent.owners, 0, owners, 0, inheritedMethods);
+	    System.arraycopy(parent.attrs, 0, attrs, 0, inheritedAttrs);
+	    if (!parent.lent) {
+		parent.lent = true;
+		methodSlots = parent.methodSlots;
+		attrSlots = parent.attrSlots;
+	    } else {
+		methodSlots = new Hashtable();
+		for (int i = 0; i < inheritedMethods; i++) {
+		    methodSlots.put(methods[i].getName(), Integer.valueOf(i));
+		}
+		attrSlots = new Hashtable();
+		for (int i = 0; i < inheritedAttrs; i++) {
+		    attrSlots.put(attrs[i].getName(), Integer.valueOf(i));
+		}
+	    }
+	}
+
+	// the attributes c itself defines, by name
+	Hashtable ownAttrs = new Hashtable();
+	for (int i = 0; i < c.getFeatures().getLength(); i++) {
+	    Object f = c.getFeatures().getNth(i);
+	    if (f instanceof method) {
+		method m = (method)f;
+		int slot = find(methodSlots, methods, nmethods, m.getName());
+		if (slot >= 0 && owners[slot] == c) {
+		    // defined earlier in c
+		    continue;
+		}
+		if (slot < 0) {
+		    slot = nmethods++;
+		    methodSlots.put(m.getName(), Integer.valueOf(slot));
+		}
+		methods[slot] = m;
+		owners[slot] = c;
+	    } else {
+		attr a = (attr)f;
+		if (a.getName() == TreeConstants.self) {
+		    continue;
+		}
+		if (ownAttrs.put(a.getName(), a) != null) {
+		    continue;
+		}
+		int slot = find(attrSlots, attrs, nattrs, a.getName());
+		if (slot < 0) {
+		    slot = nattrs++;
+		    attrSlots.put(a.getName(), Integer.valueOf(slot));
+		}
+		attrs[slot] = a;
+	    }
+	}
+
+	methods = (method[])trim(methods, new method[nmethods]);
+	owners = (class_c[])trim(owners, new class_c[nmethods]);
+	attrs = (attr[])trim(attrs, new attr[nattrs]);
+    }
+
+    private static Object[] trim(Object[] a, Object[] to) {
+	if (a.length == to.length) {
+	    return a;
+	}
+	System.arraycopy(a, 0, to, 0, to.length);
+	return to;
+    }
+
+    /** The slot of the named feature among the first count of features,
+     * or -1. */
+    private static int find(Hashtable slots, Feature[] features, int count,
+			    AbstractSymbol name) {
+	Integer slot = (Integer)slots.get(name);
+	if (slot == null) {
+	    return -1;
+	}
+	int i = slot.intValue();
+	if (i >= count) {
+	    return -1;
+	}
+	Feature f = features[i];
+	AbstractSymbol n = f instanceof method
+	    ? ((method)f).getName() : ((attr)f).getName();
+	return n == name ? i : -1;
+    }
+
+    class_c getClassc() {
+	return cls;
+    }
+
+    /** The layout this one starts with, null for Object's */
+    ClassLayout getParent() {
+	return parent;
+    }
+
+    int methodCount() {
+	return methods.length;
+    }
+
+    method methodAt(int slot) {
+	return methods[slot];
+    }
+
+    /** The class that defines the method in the slot */
+    class_c ownerAt(int slot) {
+	return owners[slot];
+    }
+
+    /** The slot of the named method, or -1. */
+    int methodSlot(AbstractSymbol name) {
+	return find(methodSlots, methods, methods.length, name);
+    }
+
+    /** The named method, or null. */
+    method lookupMethod(AbstractSymbol name) {
+	int slot = methodSlot(name);
+	return slot >= 0 ? methods[slot] : null;
+    }
+
+    int attrCount() {
+	return attrs.length;
+    }
+
+    attr attrAt(int slot) {
+	return attrs[slot];
+    }
+
+    /** The slot of the named attribute, or -1. */
+    int attrSlot(AbstractSymbol name) {
+	return find(attrSlots, attrs, attrs.length, name);
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.PrintStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/** Overlaps parsing with the start of semantic analysis.
+ *
+ * The parser puts every class on a bounded queue as soon as the class
+ * is complete (see class_queue in cool.cup), and a thread of the
+ * pipeline's own takes them off and offers them to a ClassTable, which
+ * lays out each class whose ancestors are all known.  When the program
+ * is complete, finish() checks the graph with that table: the layouts
+ * built early are used, and the rest is done as usual, so the result
+ * and the errors are those of a ClassTable built from scratch.
+ *
+ * The queue is bounded so that a parser much faster than the stage
+ * waits rather than queueing the whole program.  The stage's work is
+ * only a head start: if it fails, or is interrupted, finish() builds
+ * the table from scratch.
+ * */
+class ClassPipeline implements Runnable {
+    /** Put on the queue after the last class */
+    private static final Object END = new Object();
+
+    private BlockingQueue queue;
+    private ClassTable table;
+    private PrintStream errorStream;
+    private Thread thread;
+    private RuntimeException failure;
+
+    /** Starts the stage.
+     *
+     * @param capacity the number of classes the queue holds
+     * @param errorStream where the table reports errors
+     * */
+    ClassPipeline(int capacity, PrintStream errorStream) {
+	queue = new ArrayBlockingQueue(capacity);
+	this.errorStream = errorStream;
+	table = new ClassTable(errorStream);
+	thread = new Thread(this, "ClassPipeline");
+	thread.setDaemon(true);
+	thread.start();
+    }
+
+    /** The queue the parser puts classes on */
+    BlockingQueue queue() {
+	return queue;
+    }
+
+    /** Puts on the queue the classes of a program that was not parsed
+     * with the queue, e.g. one read from the compile cache. */
+    void put(Classes cls) {
+	try {
+	    for (int i = 0; i < cls.getLength(); i++) {
+		queue.put(cls.getNth(i));
+	    }
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    public void run() {
+	try {
+	    for (Object c = queue.take(); c != END; c = queue.take()) {
+		if (failure == null) {
+		    try {
+			table.offer((class_c)c);
+		    } catch (RuntimeException ex) {
+			// keep taking classes, so that the parser never
+			// waits on a full queue
+			failure = ex;
+		    }
+		}
+	    }
+	} catch (InterruptedException ex) {
+	    // abandoned
+	}
+    }
+
+    /** Waits for the stage to take the last class and checks the
+     * program's classes, which must be the ones put on the queue, in the
+     * same order.
+     *
+     * @return the checked table
+     * */
+    ClassTable finish(Classes cls) {
+	boolean done = false;
+	try {
+	    queue.put(END);
+	    thread.join();
+	    done = failure == null;
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	    thread.interrupt();
+	}
+	if (!done) {
+	    return new ClassTable(cls, errorStream);
+	}
+	table.check(cls);
+	return table;
+    }
+
+    /** Stops the stage without checking anything, e.g. after a parse
+     * error. */
+    void abandon() {
+	thread.interrupt();
+    }
+}
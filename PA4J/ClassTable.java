@@ -1,16 +1,72 @@
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
 
-/** This class may be used to contain the semantic information such as
- * the inheritance graph.  You may use it or not as you like: it is only
- * here to provide a container for the supplied methods.  */
+/** Holds the inheritance graph of a program: the basic classes and the
+ * classes of the program, by name.
+ *
+ * The constructor checks the graph (check() does, for a table that is
+ * offered the classes as they are parsed).  Once it has been built
+ * without errors every class except Object has a defined parent and
+ * there are no cycles, so the classes form a tree rooted at Object;
+ * the queries below (conformance, join, method lookup) rely on that.  */
 class ClassTable {
     private int semantErrors;
     private PrintStream errorStream;
 
+    /** Class name -> class_c, for the basic classes and the program's */
+    private Hashtable classes = new Hashtable();
+
+    /** Class name -> Vector of the class_c's that inherit from it */
+    private Hashtable children = new Hashtable();
+
+    /* Once the graph has been checked, every class has a type id: its
+     * number in a preorder walk of the inheritance tree.  The ids are
+     * dense, from 0 for Object, and the arrays below are indexed by
+     * them.  Semant works on ids; a type is turned back into its name
+     * only to be stored in the AST. */
+
+    /** Name -> type id, indexed by the index of the name in the id
+     * table; -1 for names that are not classes */
+    private int[] ids = new int[0];
+
+    /** The class of each type id */
+    private class_c[] numbered;
+
+    /** The largest number in the subtree of each class.  B's subtree is
+     * numbered B..last[B], so A conforms to B iff B <= A <= last[B]. */
+    private int[] last;
+
+    /** up[k][n] is the number of the 2^k-th ancestor of class n, or of
+     * Object if the chain is shorter than that. */
+    private int[][] up;
+
+    /** The layout of each class */
+    private ClassLayout[] layouts;
+
+    /* A table built for ClassPipeline is offered the classes one at a
+     * time while the program is still being parsed, and lays out each
+     * class as soon as its ancestors are known.  check() uses those
+     * layouts rather than building new ones where they are still right:
+     * where the class is the one defined by that name and its parent's
+     * layout is the one check() chose.  Until check() runs, nothing
+     * else of the table is set. */
+
+    /** Class_c -> its early layout; null unless the table is offered
+     * classes */
+    private Hashtable early;
+
+    /** Name -> the first class offered by that name */
+    private Hashtable offered;
+
+    /** Parent name -> Vector of the class_c's offered that wait for the
+     * parent to be laid out */
+    private Hashtable waiting;
+
     /** Creates data structures representing basic Cool classes (Object,
-     * IO, Int, Bool, String).  Please note: as is this method does not
-     * do anything useful; you will need to edit it to make if do what
-     * you want.
+     * IO, Int, Bool, String) and enters them in the table.
      * */
     private void installBasicClasses() {
 	AbstractSymbol filename 
@@ -164,18 +220,353 @@ class ClassTable {
 					      new no_expr(0))),
 		       filename);
 
-	/* Do somethind with Object_class, IO_class, Int_class,
-           Bool_class, and Str_class here */
-
+	classes.put(TreeConstants.Object_, Object_class);
+	classes.put(TreeConstants.IO, IO_class);
+	classes.put(TreeConstants.Int, Int_class);
+	classes.put(TreeConstants.Bool, Bool_class);
+	classes.put(TreeConstants.Str, Str_class);
+	addChild(IO_class);
+	addChild(Int_class);
+	addChild(Bool_class);
+	addChild(Str_class);
     }
 	
+    private void addChild(class_c c) {
+	Vector v = (Vector)children.get(c.getParent());
+	if (v == null) {
+	    v = new Vector();
+	    children.put(c.getParent(), v);
+	}
+	v.addElement(c);
+    }
 
+    private static boolean isBasic(AbstractSymbol name) {
+	return name == TreeConstants.Object_ || name == TreeConstants.IO
+	    || name == TreeConstants.Int || name == TreeConstants.Bool
+	    || name == TreeConstants.Str || name == TreeConstants.SELF_TYPE;
+    }
 
     public ClassTable(Classes cls) {
+	this(cls, System.err);
+    }
+
+    /** Builds the inheritance graph of the given classes and checks it,
+     * reporting errors to the given stream. */
+    public ClassTable(Classes cls, PrintStream errorStream) {
+	this(errorStream);
+	check(cls);
+    }
+
+    /** Builds a table of the basic classes only, to be offered the
+     * classes of the program and then checked. */
+    ClassTable(PrintStream errorStream) {
 	semantErrors = 0;
-	errorStream = System.err;
-	
-	/* fill this in */
+	this.errorStream = errorStream;
+	installBasicClasses();
+    }
+
+    /** Lays out c early if its ancestors are known, and then the
+     * classes offered before that were waiting for it.  The classes
+     * must be offered in the order check() will see them; redefined
+     * classes are left for check() to report. */
+    void offer(class_c c) {
+	if (early == null) {
+	    early = new Hashtable();
+	    offered = new Hashtable();
+	    waiting = new Hashtable();
+	    class_c object = lookup(TreeConstants.Object_);
+	    early.put(object, new ClassLayout(null, object));
+	    for (Enumeration e = children(TreeConstants.Object_).elements();
+		 e.hasMoreElements(); ) {
+		class_c basic = (class_c)e.nextElement();
+		early.put(basic, new ClassLayout((ClassLayout)early.get(object),
+						 basic));
+	    }
+	}
+	if (isBasic(c.getName()) || offered.containsKey(c.getName())) {
+	    return;
+	}
+	offered.put(c.getName(), c);
+	class_c parent = (class_c)offered.get(c.getParent());
+	if (parent == null && isBasic(c.getParent())) {
+	    parent = lookup(c.getParent());
+	}
+	ClassLayout p = parent != null ? (ClassLayout)early.get(parent) : null;
+	if (p == null) {
+	    Vector v = (Vector)waiting.get(c.getParent());
+	    if (v == null) {
+		v = new Vector();
+		waiting.put(c.getParent(), v);
+	    }
+	    v.addElement(c);
+	    return;
+	}
+
+	Vector work = new Vector();
+	work.addElement(new ClassLayout(p, c));
+	while (!work.isEmpty()) {
+	    ClassLayout l = (ClassLayout)work.remove(work.size() - 1);
+	    early.put(l.getClassc(), l);
+	    Vector v = (Vector)waiting.remove(l.getClassc().getName());
+	    for (int i = 0; v != null && i < v.size(); i++) {
+		work.addElement(new ClassLayout(l, (class_c)v.elementAt(i)));
+	    }
+	}
+    }
+
+    /** Enters the given classes in a table of the basic classes and
+     * checks the graph.  Called once, by the constructor or after the
+     * classes have been offered. */
+    void check(Classes cls) {
+	Vector defined = new Vector();
+	for (int i = 0; i < cls.getLength(); i++) {
+	    class_c c = (class_c)cls.getNth(i);
+	    if (isBasic(c.getName())) {
+		semantError(c).println("Redefinition of basic class "
+				       + c.getName() + ".");
+	    } else if (classes.containsKey(c.getName())) {
+		semantError(c).println("Class " + c.getName()
+				       + " was previously defined.");
+	    } else {
+		classes.put(c.getName(), c);
+		defined.addElement(c);
+	    }
+	}
+
+	for (Enumeration e = defined.elements(); e.hasMoreElements(); ) {
+	    class_c c = (class_c)e.nextElement();
+	    AbstractSymbol parent = c.getParent();
+	    if (parent == TreeConstants.Int || parent == TreeConstants.Bool
+		|| parent == TreeConstants.Str
+		|| parent == TreeConstants.SELF_TYPE) {
+		semantError(c).println("Class " + c.getName()
+				       + " cannot inherit class " + parent + ".");
+	    } else if (!classes.containsKey(parent)) {
+		semantError(c).println("Class " + c.getName()
+				       + " inherits from an undefined class "
+				       + parent + ".");
+	    } else {
+		addChild(c);
+	    }
+	}
+	if (errors()) {
+	    return;
+	}
+
+	checkCycles(defined);
+	if (errors()) {
+	    return;
+	}
+	numberClasses();
+	if (!classes.containsKey(TreeConstants.Main)) {
+	    semantError().println("Class Main is not defined.");
+	}
+    }
+
+    /** Fills in ids, numbered, last, up and layouts.  The walk keeps its
+     * own stack, since hierarchies can be deeper than the Java stack
+     * allows for recursion.  Takes O(n log depth) for n classes. */
+    private void numberClasses() {
+	int size = classes.size();
+	int maxIndex = 0;
+	for (Enumeration e = classes.keys(); e.hasMoreElements(); ) {
+	    maxIndex = Math.max(maxIndex, ((AbstractSymbol)e.nextElement()).index);
+	}
+	ids = new int[maxIndex + 1];
+	Arrays.fill(ids, -1);
+	numbered = new class_c[size];
+	last = new int[size];
+	int[] parent = new int[size];
+	int[] depth = new int[size];
+	int maxDepth = 0;
+
+	Vector stack = new Vector();
+	stack.addElement(lookup(TreeConstants.Object_));
+	int next = 0;
+	while (!stack.isEmpty()) {
+	    Object top = stack.remove(stack.size() - 1);
+	    if (top instanceof Integer) {
+		// all of the subtree has been numbered
+		last[((Integer)top).intValue()] = next - 1;
+		continue;
+	    }
+	    class_c c = (class_c)top;
+	    int n = next++;
+	    numbered[n] = c;
+	    ids[c.getName().index] = n;
+	    // preorder: the parent already has its number
+	    int p = typeId(c.getParent());
+	    if (p >= 0) {
+		parent[n] = p;
+		depth[n] = depth[parent[n]] + 1;
+		maxDepth = Math.max(maxDepth, depth[n]);
+	    }
+	    stack.addElement(Integer.valueOf(n));
+	    Vector kids = children(c.getName());
+	    for (int i = kids.size() - 1; i >= 0; i--) {
+		stack.addElement(kids.elementAt(i));
+	    }
+	}
+
+	int levels = 1;
+	while ((1 << levels) <= maxDepth) {
+	    levels++;
+	}
+	up = new int[levels][];
+	up[0] = parent;
+	for (int k = 1; k < levels; k++) {
+	    up[k] = new int[size];
+	    for (int n = 0; n < size; n++) {
+		up[k][n] = up[k - 1][up[k - 1][n]];
+	    }
+	}
+
+	// in preorder every parent is laid out before its children
+	layouts = new ClassLayout[size];
+	for (int n = 0; n < size; n++) {
+	    ClassLayout p = n > 0 ? layouts[parent[n]] : null;
+	    ClassLayout l = early != null
+		? (ClassLayout)early.get(numbered[n]) : null;
+	    layouts[n] = l != null && l.getParent() == p
+		? l : new ClassLayout(p, numbered[n]);
+	}
+	early = null;
+	offered = null;
+	waiting = null;
+    }
+
+
+    /** Reports the classes that are their own ancestors.
+     *
+     * Each class is visited once: the parent chain is followed until it
+     * reaches a class whose chain is already known to be good, or comes
+     * back to a class on the chain being followed.  */
+    private void checkCycles(Vector defined) {
+	Hashtable state = new Hashtable();
+	Object onPath = "on path";
+	Object done = "done";
+	Vector path = new Vector();
+	for (Enumeration e = defined.elements(); e.hasMoreElements(); ) {
+	    class_c c = (class_c)e.nextElement();
+	    path.removeAllElements();
+	    while (c != null && state.get(c.getName()) == null) {
+		state.put(c.getName(), onPath);
+		path.addElement(c);
+		c = lookup(c.getParent());
+	    }
+	    if (c != null && state.get(c.getName()) == onPath) {
+		// the chain runs into itself: every class from c on is
+		// in the cycle
+		for (int i = path.indexOf(c); i < path.size(); i++) {
+		    class_c bad = (class_c)path.elementAt(i);
+		    semantError(bad).println("Class " + bad.getParent()
+					     + ", an ancestor of "
+					     + bad.getName()
+					     + ", is involved in an inheritance cycle.");
+		}
+	    }
+	    for (int i = 0; i < path.size(); i++) {
+		state.put(((class_c)path.elementAt(i)).getName(), done);
+	    }
+	}
+    }
+
+    /** Returns the class of the given name, or null if it is not
+     * defined. */
+    public class_c lookup(AbstractSymbol name) {
+	return (class_c)classes.get(name);
+    }
+
+    /** Returns the classes that inherit directly from the given one. */
+    public Vector children(AbstractSymbol name) {
+	Vector v = (Vector)children.get(name);
+	return v != null ? v : new Vector(0);
+    }
+
+    /** Returns the type id of the named class, or -1 if there is no such
+     * class (or the graph has errors).  SELF_TYPE has no id. */
+    public int typeId(AbstractSymbol name) {
+	int i = name.index;
+	return i < ids.length ? ids[i] : -1;
+    }
+
+    /** Returns the name of the class with the given type id. */
+    public AbstractSymbol typeName(int id) {
+	return numbered[id].getName();
+    }
+
+    /** The number of type ids */
+    public int typeCount() {
+	return numbered != null ? numbered.length : 0;
+    }
+
+    /** Is the class with type id a a subclass of the one with id b (or
+     * b itself)?  Takes constant time: b's subtree has the ids
+     * b..last[b]. */
+    public boolean conforms(int a, int b) {
+	return b <= a && a <= last[b];
+    }
+
+    /** Is a a subclass of b (or b itself)?  Neither may be SELF_TYPE.  An
+     * undefined class conforms only to itself. */
+    public boolean conforms(AbstractSymbol a, AbstractSymbol b) {
+	int x = typeId(a);
+	int y = typeId(b);
+	if (x < 0 || y < 0) {
+	    return a == b;
+	}
+	return conforms(x, y);
+    }
+
+    /** Returns the type id of the least common ancestor of the classes
+     * with ids a and b.  Takes O(log depth): a is lifted to its highest
+     * ancestor that b is not below, in steps of halving size, and the
+     * join is that ancestor's parent. */
+    public int join(int a, int b) {
+	if (conforms(b, a)) {
+	    return a;
+	}
+	if (conforms(a, b)) {
+	    return b;
+	}
+	for (int k = up.length - 1; k >= 0; k--) {
+	    if (!conforms(b, up[k][a])) {
+		a = up[k][a];
+	    }
+	}
+	return up[0][a];
+    }
+
+    /** Returns the least common ancestor of a and b.  Neither may be
+     * SELF_TYPE.  The join with an undefined class is Object. */
+    public AbstractSymbol join(AbstractSymbol a, AbstractSymbol b) {
+	int x = typeId(a);
+	int y = typeId(b);
+	if (x < 0 || y < 0) {
+	    return TreeConstants.Object_;
+	}
+	return typeName(join(x, y));
+    }
+
+    /** Returns the layout of the class with the given type id. */
+    public ClassLayout layout(int id) {
+	return layouts[id];
+    }
+
+    /** Returns the layout of the given class: its methods and
+     * attributes, inherited ones included, by slot.  Null if the class
+     * is not defined. */
+    public ClassLayout layout(AbstractSymbol cls) {
+	int n = typeId(cls);
+	return n >= 0 ? layouts[n] : null;
+    }
+
+    /** Returns the method of the given name that objects of the given
+     * class have, defined in the class or inherited; null if there is
+     * none. */
+    public method lookupMethod(AbstractSymbol cls, AbstractSymbol name) {
+	ClassLayout l = layout(cls);
+	return l != null ? l.lookupMethod(name) : null;
     }
 
     /** Prints line number and file name of the given class.
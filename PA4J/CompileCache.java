@@ -0,0 +1,252 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A content-addressed cache of compiled ASTs in a directory.
+ *
+ * Entries are AstWriter files named by a SHA-256 key.  The driver keeps
+ * two kinds:
+ * <ul>
+ * <li>the AST parsed from one source file, keyed by the compiler
+ *     version, the file name (it ends up in the AST) and the text;
+ *     a hit skips the lexer and the parser for that file,
+ * <li>the type-annotated AST of a whole program, keyed by the keys of
+ *     its files in order; a hit skips semant as well.
+ * </ul>
+ * Type checking a file depends on the rest of the program, so typed
+ * ASTs can only be reused for the same set of files.
+ *
+ * The total size of the entries is kept under a limit by evicting the
+ * least recently used ones.  Use is recorded in the files' modification
+ * times, so the order survives across runs.  Entries are written to a
+ * temporary file and renamed into place, so several compilers can share
+ * a directory; an entry that cannot be read is dropped and counted as a
+ * miss.  Files in the directory whose names are not keys are left
+ * alone.
+ * */
+class CompileCache {
+    /** Part of every key.  Change it whenever the lexer, the parser or
+     * semant can produce a different AST for the same input. */
+    static final String COMPILER_VERSION = "cool-1/ast-" + AstWriter.VERSION;
+
+    private File dir;
+    private long maxBytes;
+    private long totalBytes = 0;
+
+    /** Entry name -> size, least recently used first */
+    private LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+    private int hits = 0;
+    private int misses = 0;
+    private int evictions = 0;
+
+    /** Opens the cache in the given directory, creating it if needed,
+     * and evicts entries if it is over the limit.
+     *
+     * @param maxBytes the limit on the total size of the entries
+     * */
+    CompileCache(File dir, long maxBytes) throws IOException {
+	this.dir = dir;
+	this.maxBytes = maxBytes;
+	if (!dir.isDirectory() && !dir.mkdirs()) {
+	    throw new IOException("cannot create cache directory " + dir);
+	}
+	File[] files = dir.listFiles();
+	Arrays.sort(files, new Comparator() {
+		public int compare(Object a, Object b) {
+		    long x = ((File)a).lastModified();
+		    long y = ((File)b).lastModified();
+		    return x < y ? -1 : x > y ? 1 : 0;
+		}
+	    });
+	for (int i = 0; i < files.length; i++) {
+	    if (!files[i].isFile() || !isKey(files[i].getName())) {
+		// not ours: the cache never touches it
+		continue;
+	    }
+	    entries.put(files[i].getName(), Long.valueOf(files[i].length()));
+	    totalBytes += files[i].length();
+	}
+	trim(null);
+    }
+
+    int hits() {
+	return hits;
+    }
+
+    int misses() {
+	return misses;
+    }
+
+    int evictions() {
+	return evictions;
+    }
+
+    private static MessageDigest digest() {
+	try {
+	    return MessageDigest.getInstance("SHA-256");
+	} catch (NoSuchAlgorithmException ex) {
+	    throw new RuntimeException(ex);
+	}
+    }
+
+    private static String hex(byte[] hash) {
+	StringBuffer buf = new StringBuffer(2 * hash.length);
+	for (int i = 0; i < hash.length; i++) {
+	    buf.append(Character.forDigit((hash[i] >> 4) & 0xf, 16));
+	    buf.append(Character.forDigit(hash[i] & 0xf, 16));
+	}
+	return buf.toString();
+    }
+
+    /** Whether a file name has the form of a key: 64 lower-case hex
+     * digits.  Only such files are taken to be entries, so pointing the
+     * cache at a directory with other files in it never deletes them. */
+    static boolean isKey(String name) {
+	if (name.length() != 64) {
+	    return false;
+	}
+	for (int i = 0; i < name.length(); i++) {
+	    char c = name.charAt(i);
+	    if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /** The key of the AST parsed from a source file. */
+    static String key(String filename) throws IOException {
+	return key(filename, filename);
+    }
+
+    /** The key of the named source file, which is read from the given
+     * path. */
+    static String key(String filename, String path) throws IOException {
+	MessageDigest md = digest();
+	md.update(COMPILER_VERSION.getBytes("UTF-8"));
+	md.update((byte)0);
+	md.update(filename.getBytes("UTF-8"));
+	md.update((byte)0);
+	FileInputStream in = new FileInputStream(path);
+	try {
+	    byte[] chunk = new byte[8192];
+	    int n;
+	    while ((n = in.read(chunk)) > 0) {
+		md.update(chunk, 0, n);
+	    }
+	} finally {
+	    in.close();
+	}
+	return hex(md.digest());
+    }
+
+    /** The key of the typed AST of the program made of the files with
+     * the given keys, in that order. */
+    static String programKey(String[] keys) throws IOException {
+	MessageDigest md = digest();
+	md.update(COMPILER_VERSION.getBytes("UTF-8"));
+	md.update("/program".getBytes("UTF-8"));
+	for (int i = 0; i < keys.length; i++) {
+	    md.update((byte)0);
+	    md.update(keys[i].getBytes("UTF-8"));
+	}
+	return hex(md.digest());
+    }
+
+    /** Returns the AST stored under the key, or null on a miss.  Other
+     * compilers sharing the directory may have pushed the cache over
+     * its limit, so a hit also evicts entries as put() does. */
+    synchronized programc get(String key) {
+	File f = new File(dir, key);
+	if (!f.isFile()) {
+	    // evicted, possibly by another compiler sharing the directory
+	    forget(key);
+	    misses++;
+	    return null;
+	}
+	try {
+	    programc program = AstReader.read(f.getPath());
+	    f.setLastModified(System.currentTimeMillis());
+	    if (entries.get(key) == null) {
+		// written by another compiler since we opened the cache
+		entries.put(key, Long.valueOf(f.length()));
+		totalBytes += f.length();
+	    }
+	    trim(key);
+	    hits++;
+	    return program;
+	} catch (IOException ex) {
+	    // truncated, or written by another version: drop it
+	    f.delete();
+	    forget(key);
+	    misses++;
+	    return null;
+	}
+    }
+
+    /** Stores an AST under the key, then evicts entries until the cache
+     * fits its limit again.  Failing to write the entry is not an error:
+     * the cache just does not get it. */
+    synchronized void put(String key, Program program) {
+	File tmp = null;
+	try {
+	    tmp = File.createTempFile(key, ".tmp", dir);
+	    OutputStream out =
+		new BufferedOutputStream(new FileOutputStream(tmp));
+	    try {
+		new AstWriter(out).write(program);
+	    } finally {
+		out.close();
+	    }
+	    File f = new File(dir, key);
+	    if (!tmp.renameTo(f)) {
+		tmp.delete();
+		return;
+	    }
+	    forget(key);
+	    entries.put(key, Long.valueOf(f.length()));
+	    totalBytes += f.length();
+	} catch (IOException ex) {
+	    if (tmp != null) {
+		tmp.delete();
+	    }
+	    return;
+	}
+	trim(key);
+    }
+
+    /** Evicts the least recently used entries until the cache fits its
+     * limit, sparing the entry with the given key (if not null), which
+     * is the one just used. */
+    private void trim(String keep) {
+	Iterator i = entries.entrySet().iterator();
+	while (totalBytes > maxBytes && i.hasNext()) {
+	    Map.Entry e = (Map.Entry)i.next();
+	    if (e.getKey().equals(keep)) {
+		continue;
+	    }
+	    new File(dir, (String)e.getKey()).delete();
+	    totalBytes -= ((Long)e.getValue()).longValue();
+	    i.remove();
+	    evictions++;
+	}
+    }
+
+    private void forget(String key) {
+	Long size = (Long)entries.remove(key);
+	if (size != null) {
+	    totalBytes -= size.longValue();
+	}
+    }
+}
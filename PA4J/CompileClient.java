@@ -0,0 +1,97 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/** Compiles through CompileServer.
+ *
+ * The client takes the driver's command line, sends it to the server
+ * with the working directory, and copies what the server sends back to
+ * its own stdout and stderr; its exit status is the compile's.  It
+ * loads none of the compiler, so it starts quickly.  If no server is
+ * listening it runs the driver itself, so the client can stand in for
+ * the driver script either way.
+ *
+ * Usage: java CompileClient [driver flags] file ...  The command lines
+ * --stats and --stop are passed to the server (see CompileServer).
+ * */
+class CompileClient {
+    public static void main(String[] args) throws IOException {
+	boolean control = args.length == 1
+	    && (args[0].equals("--stats") || args[0].equals("--stop"));
+	File socket;
+	try {
+	    socket = CompileServer.socketPath(false);
+	} catch (IOException ex) {
+	    // whatever listens there may not be ours: do not talk to it
+	    System.err.println("compile server: " + ex.getMessage());
+	    if (control) {
+		System.exit(1);
+	    }
+	    Driver.main(args);
+	    return;
+	}
+	SocketChannel channel;
+	try {
+	    channel = SocketChannel.open(
+		UnixDomainSocketAddress.of(socket.getPath()));
+	} catch (IOException ex) {
+	    if (control) {
+		System.err.println("no compile server at " + socket);
+		System.exit(1);
+	    }
+	    Driver.main(args);
+	    return;
+	}
+
+	DataOutputStream request = new DataOutputStream(
+	    new BufferedOutputStream(Channels.newOutputStream(channel)));
+	request.writeInt(CompileServer.VERSION);
+	request.writeUTF(System.getProperty("user.dir"));
+	request.writeInt(args.length);
+	for (int i = 0; i < args.length; i++) {
+	    request.writeUTF(args[i]);
+	}
+	request.flush();
+
+	DataInputStream reply = new DataInputStream(
+	    new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+	byte[] buf = new byte[1 << 16];
+	try {
+	    while (true) {
+		int tag = reply.readByte();
+		int n = reply.readInt();
+		if (tag == CompileServer.EXIT) {
+		    System.out.flush();
+		    System.err.flush();
+		    System.exit(n);
+		}
+		PrintStream to = tag == CompileServer.ERR ? System.err : System.out;
+		while (n > 0) {
+		    int r = reply.read(buf, 0, Math.min(n, buf.length));
+		    if (r < 0) {
+			throw new EOFException();
+		    }
+		    to.write(buf, 0, r);
+		    n -= r;
+		}
+		if (tag == CompileServer.ERR) {
+		    // keep diagnostics in step with the server
+		    System.err.flush();
+		}
+	    }
+	} catch (EOFException ex) {
+	    System.out.flush();
+	    System.err.println("compile server at " + socket
+			       + " closed the connection");
+	    System.exit(1);
+	}
+    }
+}
@@ -0,0 +1,403 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/** A compiler that stays resident and compiles on request.
+ *
+ * Every run of the driver script starts a JVM that loads the lexer's
+ * and the parser's tables and the symbol tables again, and runs the
+ * compiler in the interpreter until the JIT catches up.  The server
+ * keeps one JVM with all of that loaded and warm, and compiles what
+ * CompileClient sends it over a Unix domain socket: the client's
+ * working directory and command line, which takes the same flags as
+ * the driver.  The output and the diagnostics are sent back as they
+ * are produced, then the exit status.
+ *
+ * The protocol, in DataOutputStream's encodings: the client sends
+ * <pre>
+ *   int VERSION, UTF working directory, int argc, argc x UTF argument
+ * </pre>
+ * and the server answers with frames
+ * <pre>
+ *   byte OUT or ERR, int length, length bytes    (any number)
+ *   byte EXIT, int status                        (one, last)
+ * </pre>
+ * Two command lines are not compiles: --stats asks for the latency
+ * metrics, and --stop stops the server.
+ *
+ * Requests are served one at a time: the flags, the symbol tables and
+ * System.out and System.err belong to the whole JVM, and the driver
+ * uses all of them.  So that a client that connects and sends nothing
+ * cannot hold up the others, the request must arrive within
+ * REQUEST_MILLIS.  The symbol tables are never emptied, so they grow
+ * with the identifiers and strings of every program compiled.  A
+ * compile cache (-C) stays open between the requests that name the
+ * same directory.
+ *
+ * The server answers anyone who can connect to the socket, and the
+ * client trusts whatever answers, so by default the socket lives in a
+ * directory only its user can enter (see socketPath()).
+ *
+ * Usage: java CompileServer [-v] [socket].  -v logs every request on
+ * stderr.  The socket defaults to socketPath().
+ * */
+class CompileServer {
+    static final int VERSION = 1;
+
+    /* Frame tags */
+    static final int EXIT = 0;
+    static final int OUT = 1;
+    static final int ERR = 2;
+
+    /** The latencies of this many of the last requests are kept */
+    static final int WINDOW = 1000;
+
+    /** The time a client has to send its request */
+    static final long REQUEST_MILLIS = 10000;
+
+    /** The most arguments a request may have */
+    static final int MAX_ARGS = 1 << 16;
+
+    private File socket;
+    private boolean verbose;
+    private boolean running = true;
+
+    /** Cache directory and size limit -> the open CompileCache */
+    private Hashtable caches = new Hashtable();
+
+    private long started = System.currentTimeMillis();
+    private long requests = 0;
+    private long failures = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+    private long[] recent = new long[WINDOW];
+
+    /** Closes the connections of clients that are too slow to send
+     * their request */
+    private Timer deadlines = new Timer("CompileServer deadlines", true);
+
+    CompileServer(File socket, boolean verbose) {
+	this.socket = socket;
+	this.verbose = verbose;
+    }
+
+    /** The socket the server listens on and the client connects to:
+     * $COOL_SERVER_SOCKET, or cool.sock in the directory cool in
+     * $XDG_RUNTIME_DIR, or else in the directory cool-user in the
+     * temporary directory.
+     *
+     * The directory must belong to the user and be closed to everyone
+     * else, so that nobody else can put a server of their own in the
+     * server's place.  A directory that does not is refused.
+     *
+     * @param create whether to create the directory if it is missing;
+     * if it is not created, the socket returned does not exist
+     * */
+    static File socketPath(boolean create) throws IOException {
+	String path = System.getenv("COOL_SERVER_SOCKET");
+	if (path != null && path.length() > 0) {
+	    return new File(path);
+	}
+	String user = System.getProperty("user.name");
+	String runtime = System.getenv("XDG_RUNTIME_DIR");
+	File dir = runtime != null && runtime.length() > 0
+	    ? new File(runtime, "cool")
+	    : new File(System.getProperty("java.io.tmpdir"), "cool-" + user);
+	Path p = dir.toPath();
+	if (create) {
+	    try {
+		Files.createDirectory(p, PosixFilePermissions.asFileAttribute(
+		    PosixFilePermissions.fromString("rwx------")));
+	    } catch (FileAlreadyExistsException ex) {
+		// checked below
+	    }
+	} else if (!Files.exists(p, LinkOption.NOFOLLOW_LINKS)) {
+	    return new File(dir, "cool.sock");
+	}
+	PosixFileAttributes attrs = Files.readAttributes(
+	    p, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+	UserPrincipal owner = p.getFileSystem().getUserPrincipalLookupService()
+	    .lookupPrincipalByName(user);
+	if (!attrs.isDirectory() || !attrs.owner().equals(owner)) {
+	    throw new IOException(dir + " is not a directory of " + user);
+	}
+	if (!attrs.permissions().equals(
+		PosixFilePermissions.fromString("rwx------"))) {
+	    throw new IOException(dir + " is open to other users");
+	}
+	return new File(dir, "cool.sock");
+    }
+
+    /** Writes everything written to it to the client as frames of one
+     * tag.  Callers buffer, so each write becomes one frame. */
+    static class FrameStream extends OutputStream {
+	private DataOutputStream reply;
+	private int tag;
+
+	FrameStream(DataOutputStream reply, int tag) {
+	    this.reply = reply;
+	    this.tag = tag;
+	}
+
+	public void write(int b) throws IOException {
+	    write(new byte[] { (byte)b }, 0, 1);
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+	    synchronized (reply) {
+		reply.writeByte(tag);
+		reply.writeInt(len);
+		reply.write(b, off, len);
+	    }
+	}
+
+	public void flush() throws IOException {
+	    synchronized (reply) {
+		reply.flush();
+	    }
+	}
+    }
+
+    /** Listens until a --stop request. */
+    void serve() throws IOException {
+	if (socket.exists()) {
+	    if (listening(socket)) {
+		throw new IOException("a server is already listening on "
+				      + socket);
+	    }
+	    // left over from a server that did not shut down
+	    socket.delete();
+	}
+	ServerSocketChannel server =
+	    ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+	try {
+	    server.bind(UnixDomainSocketAddress.of(socket.getPath()));
+	    while (running) {
+		SocketChannel client = server.accept();
+		try {
+		    handle(client);
+		} catch (IOException ex) {
+		    // the client went away; the server carries on
+		    if (verbose) {
+			System.err.println("request failed: " + ex);
+		    }
+		} finally {
+		    client.close();
+		}
+	    }
+	} finally {
+	    server.close();
+	    socket.delete();
+	}
+    }
+
+    /** Does a server answer on the socket? */
+    static boolean listening(File socket) {
+	try {
+	    SocketChannel.open(UnixDomainSocketAddress.of(socket.getPath()))
+		.close();
+	    return true;
+	} catch (IOException ex) {
+	    return false;
+	}
+    }
+
+    private void handle(final SocketChannel client) throws IOException {
+	long start = System.nanoTime();
+	DataInputStream in = new DataInputStream(
+	    new BufferedInputStream(Channels.newInputStream(client)));
+	DataOutputStream reply = new DataOutputStream(
+	    new BufferedOutputStream(Channels.newOutputStream(client)));
+	// a blocked read on a channel ends when the channel is closed
+	TimerTask deadline = new TimerTask() {
+		public void run() {
+		    try {
+			client.close();
+		    } catch (IOException ex) {
+			// nothing more to do with it
+		    }
+		}
+	    };
+	deadlines.schedule(deadline, REQUEST_MILLIS);
+	int version = in.readInt();
+	if (version != VERSION) {
+	    deadline.cancel();
+	    reply(reply, ERR, "compile server: unsupported protocol version "
+		  + version + "\n");
+	    exit(reply, 1);
+	    return;
+	}
+	File dir = new File(in.readUTF());
+	int argc = in.readInt();
+	if (argc < 0 || argc > MAX_ARGS) {
+	    deadline.cancel();
+	    reply(reply, ERR, "compile server: bad request\n");
+	    exit(reply, 1);
+	    return;
+	}
+	String[] args = new String[argc];
+	for (int i = 0; i < args.length; i++) {
+	    args[i] = in.readUTF();
+	}
+	deadline.cancel();
+
+	if (args.length == 1 && args[0].equals("--stats")) {
+	    reply(reply, OUT, stats());
+	    exit(reply, 0);
+	    return;
+	}
+	if (args.length == 1 && args[0].equals("--stop")) {
+	    running = false;
+	    exit(reply, 0);
+	    return;
+	}
+
+	int status = compile(dir, args, reply);
+	exit(reply, status);
+	record(System.nanoTime() - start, status);
+	if (verbose) {
+	    System.err.println("compile " + Arrays.asList(args) + " in " + dir
+			       + ": status " + status + ", "
+			       + ms(System.nanoTime() - start) + " ms");
+	}
+    }
+
+    /** Runs the driver on one command line, with its output going to
+     * the client. */
+    private int compile(File dir, String[] args, DataOutputStream reply) {
+	PrintStream out = new PrintStream(
+	    new BufferedOutputStream(new FrameStream(reply, OUT), 1 << 16));
+	PrintStream err = new PrintStream(
+	    new BufferedOutputStream(new FrameStream(reply, ERR), 1 << 12),
+	    true);
+	PrintStream stdout = System.out;
+	PrintStream stderr = System.err;
+	System.setOut(out);
+	System.setErr(err);
+	int status;
+	try {
+	    Driver.reset();
+	    String[] files = Flags.handleFlags(Driver.handleDriverFlags(args));
+	    Driver driver = new Driver(out, err);
+	    driver.setDirectory(dir);
+	    String key = null;
+	    if (Driver.cacheDir != null) {
+		key = new File(driver.path(Driver.cacheDir)).getCanonicalPath()
+		    + "\0" + Driver.cacheLimit;
+		CompileCache cache = (CompileCache)caches.get(key);
+		if (cache != null) {
+		    driver.setCache(cache);
+		}
+	    }
+	    status = driver.compile(files);
+	    if (key != null && driver.getCache() != null) {
+		caches.put(key, driver.getCache());
+	    }
+	} catch (Driver.Halt ex) {
+	    status = ex.status;
+	} catch (Throwable ex) {
+	    // includes the lexer's Errors, which the driver lets through
+	    ex.printStackTrace(err);
+	    status = 1;
+	} finally {
+	    out.flush();
+	    err.flush();
+	    System.setOut(stdout);
+	    System.setErr(stderr);
+	}
+	return status;
+    }
+
+    private static void reply(DataOutputStream reply, int tag, String s)
+	throws IOException {
+	byte[] b = s.getBytes("UTF-8");
+	reply.writeByte(tag);
+	reply.writeInt(b.length);
+	reply.write(b);
+    }
+
+    private static void exit(DataOutputStream reply, int status)
+	throws IOException {
+	reply.writeByte(EXIT);
+	reply.writeInt(status);
+	reply.flush();
+    }
+
+    private void record(long nanos, int status) {
+	recent[(int)(requests % WINDOW)] = nanos;
+	requests++;
+	if (status != 0) {
+	    failures++;
+	}
+	totalNanos += nanos;
+	maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /** The latency metrics, as text */
+    String stats() {
+	StringBuffer buf = new StringBuffer();
+	buf.append("uptime\t" + (System.currentTimeMillis() - started) / 1000
+		   + " s\n");
+	buf.append("requests\t" + requests + " (" + failures
+		   + " with errors)\n");
+	if (requests > 0) {
+	    int n = (int)Math.min(requests, WINDOW);
+	    long[] sorted = new long[n];
+	    System.arraycopy(recent, 0, sorted, 0, n);
+	    Arrays.sort(sorted);
+	    buf.append("mean\t" + ms(totalNanos / requests) + " ms\n");
+	    buf.append("max\t" + ms(maxNanos) + " ms\n");
+	    buf.append("p50\t" + ms(sorted[n / 2]) + " ms (last " + n + ")\n");
+	    buf.append("p90\t" + ms(sorted[n * 9 / 10]) + " ms\n");
+	    buf.append("p99\t" + ms(sorted[n * 99 / 100]) + " ms\n");
+	}
+	return buf.toString();
+    }
+
+    private static double ms(long nanos) {
+	return (nanos / 1000) / 1000.0;
+    }
+
+    public static void main(String[] args) {
+	boolean verbose = false;
+	File socket = null;
+	for (int i = 0; i < args.length; i++) {
+	    if (args[i].equals("-v")) {
+		verbose = true;
+	    } else {
+		socket = new File(args[i]);
+	    }
+	}
+	Driver.resident = true;
+	try {
+	    if (socket == null) {
+		socket = socketPath(true);
+	    }
+	    new CompileServer(socket, verbose).serve();
+	} catch (IOException ex) {
+	    System.err.println("compile server: " + ex.getMessage());
+	    System.exit(1);
+	}
+    }
+}
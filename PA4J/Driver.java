@@ -0,0 +1,566 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.Enumeration;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+
+/** In-process compiler driver.
+ *
+ * mycoolc glues the phases together with Unix pipes: each phase runs in
+ * its own JVM, and the AST is dumped as text by one phase and re-parsed
+ * by the next.  This driver instead feeds CoolLexer tokens straight into
+ * the CUP parser and hands the resulting programc to the semantic
+ * analyzer, all in one process.  The output is the same type-annotated
+ * AST that mysemant prints.
+ *
+ * An input file written by AstWriter (see -b) is read back with
+ * AstReader instead of being lexed and parsed.
+ *
+ * Besides the standard flags understood by Flags, the driver accepts
+ * <pre>
+ *   -t    report the time spent in each phase on stderr
+ *   -j n  lex and parse up to n files, and type check classes, on up
+ *         to n threads (0 = one per processor)
+ *   -m    memory-map the source files instead of reading them
+ *   -k    pass tokens from the lexer to the parser through PackedTokens
+ *   -b    write the AST in AstWriter's binary format instead of as text
+ *   -P    start on the class table while the files are still being
+ *         parsed (see ClassPipeline)
+ *   -C dir   cache parsed and typed ASTs in dir (see CompileCache)
+ *   -S mb    limit the cache to mb megabytes (default 256)
+ * </pre>
+ *
+ * The driver can also run inside CompileServer, many compiles to one
+ * JVM.  There it must not exit: fatal errors throw Halt instead, and
+ * reset() puts the flags back between compiles.
+ *
+ * With -j each file is lexed and parsed on its own fork-join worker.
+ * The classes are still merged in command-line order, so the output does
+ * not depend on which worker finishes first.  -j also type checks large
+ * programs on n threads, or on the common fork-join pool for -j 0 (see
+ * TypeEnv.checkAll); without it they are checked on the main thread.
+ * */
+class Driver {
+    /** Report per-phase timings (-t) */
+    static boolean timing = false;
+
+    /** Number of files to lex and parse in parallel (-j) */
+    static int jobs = 1;
+
+    /** Scan memory-mapped source files (-m) */
+    static boolean mapped = false;
+
+    /** Run the lexer in packed token mode (-k) */
+    static boolean packed = false;
+
+    /** Write the AST in binary (-b) */
+    static boolean binary = false;
+
+    /** Pipeline parsing and the class table (-P) */
+    static boolean pipelined = false;
+
+    /** The number of parsed classes that may wait for the class table
+     * stage before the parser does */
+    static final int PIPELINE_CLASSES = 256;
+
+    /** Directory of the compile cache (-C), and its size limit (-S) */
+    static String cacheDir = null;
+    static long cacheLimit = 256L << 20;
+
+    private CompileCache cache;
+
+    /** The class table stage of the compile in progress, with -P */
+    private ClassPipeline pipeline;
+
+    /** Nanoseconds spent in each phase.  parseTime includes the time
+     * spent in the lexer, which is subtracted when reporting. */
+    private long lexTime, parseTime, semantTime, dumpTime;
+
+    private PrintStream out;
+    private PrintStream err;
+
+    /** The directory relative file names are in, or null for the
+     * current directory */
+    private File dir;
+
+    /** Set by CompileServer: fatal errors throw Halt rather than exit */
+    static boolean resident = false;
+
+    /** Thrown in place of exiting when the driver is resident */
+    static class Halt extends RuntimeException {
+	int status;
+
+	Halt(int status) {
+	    super("exit " + status);
+	    this.status = status;
+	}
+    }
+
+    Driver(PrintStream out, PrintStream err) {
+	this.out = out;
+	this.err = err;
+    }
+
+    /** Makes relative file names relative to the given directory. */
+    void setDirectory(File dir) {
+	this.dir = dir;
+    }
+
+    /** Uses an open cache instead of opening one for -C. */
+    void setCache(CompileCache cache) {
+	this.cache = cache;
+    }
+
+    CompileCache getCache() {
+	return cache;
+    }
+
+    /** The path to open for the given file name */
+    String path(String filename) {
+	if (dir == null || new File(filename).isAbsolute()) {
+	    return filename;
+	}
+	return new File(dir, filename).getPath();
+    }
+
+    /** Reports an error the driver cannot go on from, and exits, or
+     * throws Halt if the driver is resident. */
+    static void fatal(String message) {
+	if (resident) {
+	    System.err.println(message);
+	    throw new Halt(1);
+	}
+	Utilities.fatalError(message);
+    }
+
+    /** Puts the driver's flags and the standard ones back to their
+     * defaults, for the next compile in the same JVM. */
+    static void reset() {
+	timing = false;
+	jobs = 1;
+	mapped = false;
+	packed = false;
+	binary = false;
+	pipelined = false;
+	cacheDir = null;
+	cacheLimit = 256L << 20;
+	TypeEnv.jobs = 1;
+	Flags.lex_debug = false;
+	Flags.parser_debug = false;
+	Flags.semant_debug = false;
+	Flags.cgen_debug = false;
+	Flags.cgen_optimize = false;
+	Flags.out_filename = null;
+    }
+
+    /** A CoolLexer that accounts the time spent scanning tokens. */
+    class TimedLexer extends CoolLexer {
+	TimedLexer(Reader reader) {
+	    super(reader);
+	}
+
+	public Symbol next_token() throws IOException {
+	    long start = System.nanoTime();
+	    Symbol s = super.next_token();
+	    lexTime += System.nanoTime() - start;
+	    return s;
+	}
+    }
+
+    /** A CoolParser that puts every class it parses on a queue, if it
+     * is given one (see publish() in cool.cup). */
+    static class QueueingParser extends CoolParser {
+	BlockingQueue class_queue = null;
+
+	QueueingParser(Scanner s) {
+	    super(s);
+	}
+
+	/* parse() creates the actions afresh, so hand them the queue
+	   here rather than once */
+	protected void init_actions() {
+	    super.init_actions();
+	    action_obj.class_queue = class_queue;
+	}
+    }
+
+    /** A CoolParser for a resident driver.  CoolParser exits after 50
+     * syntax errors; this one reports the 51st the same way and then
+     * throws Halt. */
+    static class ResidentParser extends QueueingParser {
+	ResidentParser(Scanner s) {
+	    super(s);
+	}
+
+	public void syntax_error(Symbol cur_token) {
+	    if (omerrs < 50) {
+		super.syntax_error(cur_token);
+		return;
+	    }
+	    System.err.print("\"" + action_obj.curr_filename().getString()
+			     + "\", line " + action_obj.curr_lineno()
+			     + ": parse error at or near ");
+	    Utilities.printToken(cur_token);
+	    omerrs++;
+	    System.err.println("More than 50 errors");
+	    throw new Halt(1);
+	}
+    }
+
+    /** A CoolParser that counts syntax errors without reporting them. */
+    static class QuietParser extends CoolParser {
+	QuietParser(Scanner s) {
+	    super(s);
+	}
+
+	public void syntax_error(Symbol cur_token) {
+	    omerrs++;
+	}
+    }
+
+    /** Parses one file on a fork-join worker.  Errors are not reported
+     * here; files that fail are parsed again by compile() on the main
+     * thread so that their messages come out in file order. */
+    static class ParseTask extends RecursiveAction {
+	private String filename;
+	private String path;
+	private programc[] results;
+	private int index;
+
+	/** @param path where the file is, if not at filename */
+	ParseTask(String filename, String path, programc[] results,
+		  int index) {
+	    this.filename = filename;
+	    this.path = path;
+	    this.results = results;
+	    this.index = index;
+	}
+
+	protected void compute() {
+	    try {
+		if (AstReader.isAstFile(path)) {
+		    results[index] = AstReader.read(path);
+		    return;
+		}
+		Reader file = mapped ? CoolLexer.NO_INPUT
+		    : new FileReader(path);
+		try {
+		    CoolLexer lexer = new CoolLexer(file);
+		    if (mapped) {
+			lexer.map_file(path);
+		    }
+		    lexer.set_filename(filename);
+		    CoolParser parser =
+			new QuietParser(packed ? new PackedTokens(lexer) : (Scanner)lexer);
+		    Symbol result = parser.parse();
+		    if (parser.omerrs == 0) {
+			results[index] = (programc)result.value;
+		    }
+		} finally {
+		    file.close();
+		}
+	    } catch (Throwable ex) {
+		// includes the lexer's Errors; the sequential retry reports them
+		results[index] = null;
+	    }
+	}
+    }
+
+    /** Lexes and parses in parallel the files that have no entry in
+     * results yet, leaving the results in file order.  An entry stays
+     * null if the file could not be parsed. */
+    void parseParallel(String[] filenames, programc[] results) {
+	SharedTables.install();
+	ParseTask[] tasks = new ParseTask[filenames.length];
+	int n = jobs > 0 ? jobs : Runtime.getRuntime().availableProcessors();
+	ForkJoinPool pool = new ForkJoinPool(Math.min(n, filenames.length));
+	long start = System.nanoTime();
+	for (int i = 0; i < filenames.length; i++) {
+	    if (results[i] == null) {
+		tasks[i] = new ParseTask(filenames[i], path(filenames[i]),
+					 results, i);
+		pool.execute(tasks[i]);
+	    }
+	}
+	for (int i = 0; i < tasks.length; i++) {
+	    if (tasks[i] != null) {
+		tasks[i].join();
+	    }
+	}
+	parseTime += System.nanoTime() - start;
+	pool.shutdown();
+    }
+
+    /** Lexes and parses one source file.
+     *
+     * @param filename the file to compile
+     * @return the parsed program, or null if there were lex or parse
+     * errors (these have already been reported)
+     * */
+    programc parse(String filename) throws IOException {
+	Reader file = CoolLexer.NO_INPUT;
+	CoolLexer lexer = null;
+	try {
+	    if (AstReader.isAstFile(path(filename))) {
+		long start = System.nanoTime();
+		programc program = AstReader.read(path(filename));
+		parseTime += System.nanoTime() - start;
+		return program;
+	    }
+	    if (!mapped) {
+		file = new FileReader(path(filename));
+	    }
+	    lexer = timing ? new TimedLexer(file) : new CoolLexer(file);
+	    if (mapped) {
+		lexer.map_file(path(filename));
+	    }
+	} catch (FileNotFoundException ex) {
+	    fatal("Could not open input file " + filename);
+	}
+	lexer.set_filename(filename);
+	Scanner scanner = packed ? new PackedTokens(lexer) : (Scanner)lexer;
+	QueueingParser parser = resident
+	    ? new ResidentParser(scanner) : new QueueingParser(scanner);
+	if (pipeline != null) {
+	    parser.class_queue = pipeline.queue();
+	}
+	long start = System.nanoTime();
+	Symbol result = null;
+	try {
+	    result = parser.parse();
+	} catch (IOException ex) {
+	    throw ex;
+	} catch (Halt ex) {
+	    throw ex;
+	} catch (Exception ex) {
+	    ex.printStackTrace(err);
+	    fatal("Unexpected exception in parser");
+	} finally {
+	    file.close();
+	}
+	parseTime += System.nanoTime() - start;
+	if (parser.omerrs > 0) {
+	    return null;
+	}
+	return (programc)result.value;
+    }
+
+    /** Combines the classes of several parsed files into one program,
+     * in the order the files were given. */
+    static programc merge(Vector programs) {
+	if (programs.size() == 1) {
+	    return (programc)programs.elementAt(0);
+	}
+	programc last = (programc)programs.lastElement();
+	Classes all = new Classes(last.getLineNumber());
+	for (Enumeration p = programs.elements(); p.hasMoreElements(); ) {
+	    Classes cls = ((programc)p.nextElement()).classes;
+	    for (Enumeration e = cls.getElements(); e.hasMoreElements(); ) {
+		all.appendElement((TreeNode)e.nextElement());
+	    }
+	}
+	return new programc(last.getLineNumber(), all);
+    }
+
+    /** Compiles the given files as one program and prints the
+     * type-annotated AST.
+     *
+     * @return the process exit status
+     * */
+    int compile(String[] filenames) throws IOException {
+	Vector programs = new Vector();
+	boolean errors = false;
+	programc[] parsed = new programc[filenames.length];
+	String[] keys = null;
+	String programKey = null;
+	if (cacheDir != null) {
+	    long start = System.nanoTime();
+	    if (cache == null) {
+		cache = new CompileCache(new File(path(cacheDir)), cacheLimit);
+	    }
+	    keys = new String[filenames.length];
+	    for (int i = 0; i < filenames.length; i++) {
+		try {
+		    keys[i] = CompileCache.key(filenames[i], path(filenames[i]));
+		} catch (FileNotFoundException ex) {
+		    fatal("Could not open input file " + filenames[i]);
+		}
+	    }
+	    programKey = CompileCache.programKey(keys);
+	    programc typed = cache.get(programKey);
+	    if (typed != null) {
+		parseTime += System.nanoTime() - start;
+		dump(typed);
+		return 0;
+	    }
+	    for (int i = 0; i < filenames.length; i++) {
+		parsed[i] = cache.get(keys[i]);
+	    }
+	    parseTime += System.nanoTime() - start;
+	}
+	boolean[] hit = new boolean[filenames.length];
+	for (int i = 0; i < filenames.length; i++) {
+	    hit[i] = parsed[i] != null;
+	}
+	if (jobs != 1 && filenames.length > 1) {
+	    parseParallel(filenames, parsed);
+	}
+	if (pipelined) {
+	    pipeline = new ClassPipeline(PIPELINE_CLASSES, System.err);
+	}
+	boolean parsedAll = false;
+	try {
+	    for (int i = 0; i < filenames.length; i++) {
+		programc p = parsed[i];
+		if (p == null) {
+		    p = parse(filenames[i]);
+		} else if (pipeline != null) {
+		    pipeline.put(p.classes);
+		}
+		if (p == null) {
+		    errors = true;
+		} else {
+		    programs.addElement(p);
+		    if (cache != null && !hit[i]) {
+			cache.put(keys[i], p);
+		    }
+		}
+	    }
+	    parsedAll = !errors && !programs.isEmpty();
+	} finally {
+	    // parse() may also leave by Halt or IOException; a resident
+	    // driver must not leave the stage's thread waiting on the queue
+	    if (!parsedAll && pipeline != null) {
+		pipeline.abandon();
+		pipeline = null;
+	    }
+	}
+	if (errors) {
+	    err.println("Compilation halted due to lex and parse errors");
+	    return 1;
+	}
+	if (programs.isEmpty()) {
+	    return 0;
+	}
+	programc program = merge(programs);
+
+	long start = System.nanoTime();
+	ClassTable table;
+	if (pipeline != null) {
+	    table = pipeline.finish(program.classes);
+	    pipeline = null;
+	} else {
+	    table = new ClassTable(program.classes);
+	}
+	boolean semantErrors = program.typecheck(table);
+	semantTime = System.nanoTime() - start;
+	if (semantErrors) {
+	    err.println("Compilation halted due to static semantic errors.");
+	    return 1;
+	}
+	if (cache != null) {
+	    cache.put(programKey, program);
+	}
+
+	dump(program);
+	return 0;
+    }
+
+    /** Prints the typed AST, and the timings if asked for. */
+    private void dump(programc program) throws IOException {
+	long start = System.nanoTime();
+	if (binary) {
+	    new AstWriter(new BufferedOutputStream(out, 1 << 16)).write(program);
+	} else {
+	    program.dump_with_types(out, 0);
+	}
+	out.flush();
+	dumpTime = System.nanoTime() - start;
+
+	if (timing) {
+	    reportTimes();
+	}
+    }
+
+    private void reportTimes() {
+	if (jobs != 1) {
+	    reportTime("lex+parse", parseTime);
+	} else {
+	    reportTime("lex", lexTime);
+	    reportTime("parse", parseTime - lexTime);
+	}
+	reportTime("semant", semantTime);
+	reportTime("dump", dumpTime);
+	reportTime("total", parseTime + semantTime + dumpTime);
+	if (cache != null) {
+	    err.println("cache\t" + cache.hits() + " hits, " + cache.misses()
+			+ " misses, " + cache.evictions() + " evicted");
+	}
+    }
+
+    private void reportTime(String phase, long nanos) {
+	err.println(phase + "\t" + (nanos / 1000) / 1000.0 + " ms");
+    }
+
+    /** Removes the driver's own flags from the command line, leaving
+     * the rest for Flags.handleFlags. */
+    static String[] handleDriverFlags(String[] args) {
+	Vector rest = new Vector();
+	for (int i = 0; i < args.length; i++) {
+	    if (args[i].equals("-t")) {
+		timing = true;
+	    } else if (args[i].equals("-m")) {
+		mapped = true;
+	    } else if (args[i].equals("-k")) {
+		packed = true;
+	    } else if (args[i].equals("-b")) {
+		binary = true;
+	    } else if (args[i].equals("-P")) {
+		pipelined = true;
+	    } else if (args[i].equals("-C") && i + 1 < args.length) {
+		cacheDir = args[++i];
+	    } else if (args[i].equals("-S") && i + 1 < args.length) {
+		try {
+		    cacheLimit = Long.parseLong(args[++i]) << 20;
+		} catch (NumberFormatException ex) {
+		    fatal("-S expects a number, got " + args[i]);
+		}
+	    } else if (args[i].equals("-j") && i + 1 < args.length) {
+		try {
+		    jobs = Integer.parseInt(args[++i]);
+		} catch (NumberFormatException ex) {
+		    jobs = -1;
+		}
+		if (jobs < 0) {
+		    fatal("-j expects a number of threads, got " + args[i]);
+		}
+		TypeEnv.jobs = jobs;
+	    } else {
+		rest.addElement(args[i]);
+	    }
+	}
+	String[] result = new String[rest.size()];
+	rest.copyInto(result);
+	return result;
+    }
+
+    public static void main(String[] args) {
+	args = Flags.handleFlags(handleDriverFlags(args));
+	Driver driver = new Driver(System.out, System.err);
+	try {
+	    System.exit(driver.compile(args));
+	} catch (IOException ex) {
+	    ex.printStackTrace(System.err);
+	    Utilities.fatalError("Unexpected exception in driver");
+	}
+    }
+}
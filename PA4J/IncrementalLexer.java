@@ -0,0 +1 @@
+../PA2J/IncrementalLexer.java
\ No newline at end of file
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java_cup.runtime.Symbol;
+
+/** Keeps the AST of a source text up to date as it is edited.
+ *
+ * The text is lexed by an IncrementalLexer, which keeps the Symbols of
+ * tokens outside the edited region.  The token stream is then cut into
+ * classes (CLASS ... RBRACE SEMI at brace depth 0) and each class is
+ * parsed on its own.  A class whose tokens are the same Symbols as
+ * before is not parsed again: its old class_c is reused, with its line
+ * numbers shifted if lines were added or removed above it.
+ *
+ * The parser takes the line numbers of nodes from the token after the
+ * one just read, so a class_c also depends on the line of the token
+ * that follows the class.  A class is only reused if that line is at
+ * the same distance from its first token as before.
+ *
+ * If the tokens cannot be cut into classes, or a class has syntax
+ * errors, the whole file is parsed again so that errors are reported
+ * exactly as by a normal parse.
+ * */
+class IncrementalParser {
+    private IncrementalLexer lexer;
+    private AbstractSymbol filename;
+    private Unit[] units = new Unit[0];
+    private programc program;
+
+    /** Classes reused and parsed by the last update */
+    private int reused;
+    private int reparsed;
+
+    /** A class and the tokens it was parsed from */
+    static class Unit {
+	Symbol[] tokens;
+	/** Line of the first token */
+	int firstLine;
+	/** Line of the token after the class */
+	int nextLine;
+	class_c tree;
+    }
+
+    /** Tokens from..to-1 of the lexer, then EOF at line eofLine */
+    class Range implements TokenSource {
+	private int next;
+	private int to;
+	private int eofLine;
+	private int line;
+
+	Range(int from, int to, int eofLine) {
+	    this.next = from;
+	    this.to = to;
+	    this.eofLine = eofLine;
+	}
+
+	public Symbol next_token() {
+	    if (next < to) {
+		line = lexer.line(next);
+		// the parser writes into the Symbols it is given
+		Symbol s = lexer.token(next++);
+		return new Symbol(s.sym, s.value);
+	    }
+	    line = eofLine;
+	    return new Symbol(TokenConstants.EOF);
+	}
+
+	public int curr_lineno() {
+	    return line;
+	}
+
+	public AbstractSymbol curr_filename() {
+	    return filename;
+	}
+    }
+
+    IncrementalParser(String filename, String source) throws IOException {
+	this.filename = AbstractTable.stringtable.addString(filename);
+	lexer = new IncrementalLexer(source);
+	update();
+    }
+
+    /** The current AST, or null if the text has syntax errors */
+    programc program() {
+	return program;
+    }
+
+    int reused() {
+	return reused;
+    }
+
+    int reparsed() {
+	return reparsed;
+    }
+
+    /** Applies an edit to the text and updates the AST.
+     *
+     * @param offset where the edit starts
+     * @param removed the number of characters removed at offset
+     * @param inserted the text inserted in their place
+     * @return the new AST, or null if the text has syntax errors (these
+     * have been reported)
+     * */
+    programc edit(int offset, int removed, String inserted)
+	throws IOException {
+	lexer.edit(offset, removed, inserted);
+	update();
+	return program;
+    }
+
+    /** Cuts the tokens into classes.
+     *
+     * @return the index of the first token of each class, followed by
+     * the index of the EOF token; null if the tokens are not a sequence
+     * of CLASS ... RBRACE SEMI
+     * */
+    private int[] split() {
+	int[] bounds = new int[16];
+	int n = 0;
+	int i = 0;
+	while (lexer.token(i).sym != TokenConstants.EOF) {
+	    if (lexer.token(i).sym != TokenConstants.CLASS) {
+		return null;
+	    }
+	    if (n + 2 > bounds.length) {
+		int[] b = new int[2 * bounds.length];
+		System.arraycopy(bounds, 0, b, 0, n);
+		bounds = b;
+	    }
+	    bounds[n++] = i;
+	    int depth = 0;
+	    boolean body = false;
+	    for (i++; !(body && depth == 0); i++) {
+		int sym = lexer.token(i).sym;
+		if (sym == TokenConstants.EOF) {
+		    return null;
+		} else if (sym == TokenConstants.LBRACE) {
+		    depth++;
+		    body = true;
+		} else if (sym == TokenConstants.RBRACE && --depth < 0) {
+		    return null;
+		}
+	    }
+	    if (lexer.token(i).sym != TokenConstants.SEMI) {
+		return null;
+	    }
+	    i++;
+	}
+	bounds[n++] = i;
+	int[] result = new int[n];
+	System.arraycopy(bounds, 0, result, 0, n);
+	return result;
+    }
+
+    /** Is the old unit made of exactly the tokens from..to-1? */
+    private boolean unchanged(Unit u, int from, int to) {
+	if (u.tokens.length != to - from) {
+	    return false;
+	}
+	for (int i = 0; i < u.tokens.length; i++) {
+	    if (u.tokens[i] != lexer.token(from + i)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private void update() throws IOException {
+	reused = 0;
+	reparsed = 0;
+	int[] bounds = split();
+	if (bounds == null || bounds.length == 1) {
+	    parseAll();
+	    return;
+	}
+
+	IdentityHashMap old = new IdentityHashMap();
+	for (int k = 0; k < units.length; k++) {
+	    old.put(units[k].tokens[0], units[k]);
+	}
+	Unit[] fresh = new Unit[bounds.length - 1];
+	for (int k = 0; k < fresh.length; k++) {
+	    int from = bounds[k];
+	    int to = bounds[k + 1];
+	    int firstLine = lexer.line(from);
+	    int nextLine = lexer.line(to);
+	    Unit u = (Unit)old.get(lexer.token(from));
+	    if (u != null && unchanged(u, from, to)
+		&& u.nextLine - u.firstLine == nextLine - firstLine) {
+		u.tree.shift_lines(firstLine - u.firstLine);
+		reused++;
+	    } else {
+		CoolParser parser =
+		    new Driver.QuietParser(new Range(from, to, nextLine));
+		Symbol result;
+		try {
+		    result = parser.parse();
+		} catch (IOException ex) {
+		    throw ex;
+		} catch (Exception ex) {
+		    result = null;
+		}
+		if (result == null || parser.omerrs > 0) {
+		    parseAll();
+		    return;
+		}
+		u = new Unit();
+		u.tokens = new Symbol[to - from];
+		for (int i = from; i < to; i++) {
+		    u.tokens[i - from] = lexer.token(i);
+		}
+		u.tree = (class_c)((programc)result.value).classes.getNth(0);
+		reparsed++;
+	    }
+	    u.firstLine = firstLine;
+	    u.nextLine = nextLine;
+	    fresh[k] = u;
+	}
+	units = fresh;
+
+	// the lines the parser would have given the list and the program
+	Classes classes = new Classes(fresh[0].nextLine);
+	for (int k = 0; k < fresh.length; k++) {
+	    classes.appendElement(fresh[k].tree);
+	}
+	program = new programc(lexer.line(lexer.size() - 1), classes);
+    }
+
+    /** Parses the whole text, reporting any syntax errors. */
+    private void parseAll() throws IOException {
+	int eof = lexer.size() - 1;
+	CoolParser parser = new CoolParser(new Range(0, eof, lexer.line(eof)));
+	Symbol result;
+	try {
+	    result = parser.parse();
+	} catch (IOException ex) {
+	    throw ex;
+	} catch (Exception ex) {
+	    ex.printStackTrace(System.err);
+	    result = null;
+	}
+	units = new Unit[0];
+	reparsed = 1;
+	program = result == null || parser.omerrs > 0
+	    ? null : (programc)result.value;
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.PrintStream;
+import java.util.BitSet;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/** Type checks a program again after an edit, checking only the classes
+ * the edit can affect.
+ *
+ * The check of a class reads the declarations of other classes, and
+ * its TypeEnv records which: the parent, the types of attributes,
+ * formals and let and case variables, static dispatch targets, the
+ * classes whose methods are called and the types compared or joined.
+ * What the check needs of a declaration is summed up by the class's
+ * signature: its parent and the names and types of its attributes and
+ * methods.  Method bodies and initializers are not part of it.
+ *
+ * A class is checked again when its class_c is not the one checked
+ * last time (IncrementalParser keeps the class_c of every class that
+ * was not edited), or when it depends on a class whose signature
+ * changed, or which was added or removed.  Inherited attributes and
+ * methods and conformance all follow the parent chain, so a change to
+ * a class counts as a change to all the classes below it.  The other
+ * classes keep the result of their last check: the errors found, which
+ * are printed again with the current line numbers, and the types set
+ * in their AST.
+ *
+ * The ClassTable is built for every check; that is linear in the number
+ * of classes.  If the inheritance graph has errors no class is type
+ * checked and the next check starts from scratch.
+ * */
+class IncrementalSemant {
+    private PrintStream errorStream;
+
+    /** Class name -> the TypeEnv of its last check */
+    private Hashtable results = new Hashtable();
+
+    /** Class name -> signature at the last check */
+    private Hashtable signatures = new Hashtable();
+
+    /** Classes checked and reused by the last check */
+    private int checked;
+    private int reused;
+
+    IncrementalSemant(PrintStream errorStream) {
+	this.errorStream = errorStream;
+    }
+
+    IncrementalSemant() {
+	this(System.err);
+    }
+
+    int checked() {
+	return checked;
+    }
+
+    int reused() {
+	return reused;
+    }
+
+    /** The parts of a class's declaration other classes can see. */
+    static String signature(class_c c) {
+	StringBuffer buf = new StringBuffer();
+	buf.append(c.getParent());
+	for (int i = 0; i < c.getFeatures().getLength(); i++) {
+	    Object f = c.getFeatures().getNth(i);
+	    if (f instanceof attr) {
+		attr a = (attr)f;
+		buf.append(' ').append(a.getName()).append(':')
+		    .append(a.getType());
+	    } else {
+		method m = (method)f;
+		buf.append(' ').append(m.getName()).append('(');
+		for (int j = 0; j < m.getFormals().getLength(); j++) {
+		    formalc p = (formalc)m.getFormals().getNth(j);
+		    buf.append(p.getName()).append(':').append(p.getType())
+			.append(',');
+		}
+		buf.append("):").append(m.getReturnType());
+	    }
+	}
+	return buf.toString();
+    }
+
+    /** Checks the program, reporting errors to the error stream.
+     *
+     * @return true if the program has semantic errors
+     * */
+    boolean check(programc program) {
+	checked = 0;
+	reused = 0;
+	ClassTable table = new ClassTable(program.classes, errorStream);
+	if (table.errors()) {
+	    results.clear();
+	    signatures.clear();
+	    return true;
+	}
+
+	// the classes whose signature changed, then everything below them
+	Hashtable fresh = new Hashtable();
+	// by the index of the class's name in the id table
+	BitSet changed = new BitSet();
+	for (int i = 0; i < program.classes.getLength(); i++) {
+	    class_c c = (class_c)program.classes.getNth(i);
+	    TypeEnv old = (TypeEnv)results.get(c.getName());
+	    String sig = old != null && old.cls == c
+		? (String)signatures.get(c.getName()) : signature(c);
+	    fresh.put(c.getName(), sig);
+	    if (!sig.equals(signatures.get(c.getName()))) {
+		changed.set(c.getName().index);
+	    }
+	}
+	for (Enumeration e = signatures.keys(); e.hasMoreElements(); ) {
+	    AbstractSymbol name = (AbstractSymbol)e.nextElement();
+	    if (!fresh.containsKey(name)) {
+		changed.set(name.index);
+	    }
+	}
+	Vector work = new Vector();
+	for (int i = changed.nextSetBit(0); i >= 0;
+	     i = changed.nextSetBit(i + 1)) {
+	    work.addElement(AbstractTable.idtable.lookup(i));
+	}
+	while (!work.isEmpty()) {
+	    AbstractSymbol name = (AbstractSymbol)work.remove(work.size() - 1);
+	    for (Enumeration e = table.children(name).elements();
+		 e.hasMoreElements(); ) {
+		AbstractSymbol child = ((class_c)e.nextElement()).getName();
+		if (!changed.get(child.index)) {
+		    changed.set(child.index);
+		    work.addElement(child);
+		}
+	    }
+	}
+
+	Hashtable next = new Hashtable();
+	TypeEnv[] envs = new TypeEnv[program.classes.getLength()];
+	Vector stale = new Vector();
+	for (int i = 0; i < envs.length; i++) {
+	    class_c c = (class_c)program.classes.getNth(i);
+	    TypeEnv env = (TypeEnv)results.get(c.getName());
+	    if (env == null || env.cls != c || env.depends_on(changed)) {
+		env = new TypeEnv(table, c);
+		stale.addElement(env);
+		checked++;
+	    } else {
+		reused++;
+	    }
+	    next.put(c.getName(), env);
+	    envs[i] = env;
+	}
+	TypeEnv[] recheck = new TypeEnv[stale.size()];
+	stale.copyInto(recheck);
+	TypeEnv.checkAll(recheck);
+	for (int i = 0; i < envs.length; i++) {
+	    envs[i].report(table);
+	}
+	results = next;
+	signatures = fresh;
+	return table.errors();
+    }
+}
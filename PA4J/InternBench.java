@@ -0,0 +1,230 @@
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Vector;
+import java_cup.runtime.Symbol;
+
+/** Compares the lock-striped tables in SharedTables with tables that
+ * serialize every addString on one lock, with 1 to 64 lexer threads.
+ * Both kinds find symbols by hashing, so the difference between them is
+ * the lock and not the lookup.  Every run starts from the tables as
+ * they were before any source was lexed, so the first run of each kind
+ * adds the same symbols.
+ *
+ * Every thread lexes all the given files, reading them from memory, so
+ * the amount of work per thread is fixed and an ideal table would give
+ * the same time for every thread count.  Usage:
+ * <pre>
+ *   java InternBench [-n rounds] file ...
+ * </pre>
+ * */
+class InternBench {
+
+    /** SharedTables.Interner with one lock around everything: the
+     * baseline. */
+    static class LockedInterner {
+	private AbstractTable table;
+	private HashMap symbols = new HashMap();
+
+	LockedInterner(AbstractTable table) {
+	    this.table = table;
+	}
+
+	synchronized AbstractSymbol addString(String s, int maxchars) {
+	    String key = s.length() > maxchars ? s.substring(0, maxchars) : s;
+	    AbstractSymbol sym = (AbstractSymbol)symbols.get(key);
+	    if (sym == null) {
+		sym = table.getNewSymbol(key, key.length(), table.tbl.size());
+		table.tbl.addElement(sym);
+		symbols.put(key, sym);
+	    }
+	    return sym;
+	}
+
+	synchronized AbstractSymbol lookup(String s) {
+	    return (AbstractSymbol)symbols.get(s);
+	}
+
+	void seed(Object[] from) {
+	    for (int i = 0; i < from.length; i++) {
+		AbstractSymbol sym = (AbstractSymbol)from[i];
+		table.tbl.addElement(sym);
+		symbols.put(sym.getString(), sym);
+	    }
+	}
+    }
+
+    static class LockedStringTable extends StringTable {
+	LockedInterner interner = new LockedInterner(this);
+
+	public AbstractSymbol addString(String s, int maxchars) {
+	    return interner.addString(s, maxchars);
+	}
+
+	public AbstractSymbol lookup(String s) {
+	    return interner.lookup(s);
+	}
+    }
+
+    static class LockedIdTable extends IdTable {
+	LockedInterner interner = new LockedInterner(this);
+
+	public AbstractSymbol addString(String s, int maxchars) {
+	    return interner.addString(s, maxchars);
+	}
+
+	public AbstractSymbol lookup(String s) {
+	    return interner.lookup(s);
+	}
+    }
+
+    static class LockedIntTable extends IntTable {
+	LockedInterner interner = new LockedInterner(this);
+
+	public AbstractSymbol addString(String s, int maxchars) {
+	    return interner.addString(s, maxchars);
+	}
+
+	public AbstractSymbol lookup(String s) {
+	    return interner.lookup(s);
+	}
+    }
+
+    /** The symbols of the tables before any source was lexed */
+    private static Object[] initialStrings;
+    private static Object[] initialIds;
+    private static Object[] initialInts;
+
+    private static Object[] symbols(AbstractTable table) {
+	Vector v = new Vector();
+	for (Enumeration e = table.getSymbols(); e.hasMoreElements(); ) {
+	    v.addElement(e.nextElement());
+	}
+	Object[] result = new Object[v.size()];
+	v.copyInto(result);
+	return result;
+    }
+
+    private static AbstractTable seed(Object[] from, AbstractTable to) {
+	for (int i = 0; i < from.length; i++) {
+	    to.tbl.addElement(from[i]);
+	}
+	return to;
+    }
+
+    /** Installs fresh global-lock tables holding the initial symbols. */
+    static void installLocked() {
+	LockedStringTable strings = new LockedStringTable();
+	strings.interner.seed(initialStrings);
+	LockedIdTable ids = new LockedIdTable();
+	ids.interner.seed(initialIds);
+	LockedIntTable ints = new LockedIntTable();
+	ints.interner.seed(initialInts);
+	AbstractTable.stringtable = strings;
+	AbstractTable.idtable = ids;
+	AbstractTable.inttable = ints;
+    }
+
+    /** Installs fresh striped tables holding the initial symbols. */
+    static void installStriped() {
+	AbstractTable.stringtable =
+	    (StringTable)seed(initialStrings, new StringTable());
+	AbstractTable.idtable = (IdTable)seed(initialIds, new IdTable());
+	AbstractTable.inttable = (IntTable)seed(initialInts, new IntTable());
+	SharedTables.install();
+    }
+
+    /** Lexes every source once; returns the number of tokens. */
+    static long lexAll(String[] sources) throws IOException {
+	long tokens = 0;
+	for (int i = 0; i < sources.length; i++) {
+	    CoolLexer lexer = new CoolLexer(new StringReader(sources[i]));
+	    for (Symbol s = lexer.next_token();
+		 s.sym != TokenConstants.EOF;
+		 s = lexer.next_token()) {
+		tokens++;
+	    }
+	}
+	return tokens;
+    }
+
+    /** Runs the lexer on the given number of threads at once.
+     *
+     * @return the elapsed wall-clock time in nanoseconds
+     * */
+    static long run(final String[] sources, final int rounds, int threads)
+	throws InterruptedException {
+	Thread[] workers = new Thread[threads];
+	for (int i = 0; i < threads; i++) {
+	    workers[i] = new Thread() {
+		    public void run() {
+			try {
+			    for (int r = 0; r < rounds; r++) {
+				lexAll(sources);
+			    }
+			} catch (IOException ex) {
+			    throw new RuntimeException(ex);
+			}
+		    }
+		};
+	}
+	long start = System.nanoTime();
+	for (int i = 0; i < threads; i++) {
+	    workers[i].start();
+	}
+	for (int i = 0; i < threads; i++) {
+	    workers[i].join();
+	}
+	return System.nanoTime() - start;
+    }
+
+    static String read(String filename) throws IOException {
+	FileReader in = new FileReader(filename);
+	StringBuffer buf = new StringBuffer();
+	char[] chunk = new char[4096];
+	int n;
+	while ((n = in.read(chunk)) > 0) {
+	    buf.append(chunk, 0, n);
+	}
+	in.close();
+	return buf.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+	int rounds = 20;
+	int first = 0;
+	if (args.length > 1 && args[0].equals("-n")) {
+	    rounds = Integer.parseInt(args[1]);
+	    first = 2;
+	}
+	String[] sources = new String[args.length - first];
+	for (int i = 0; i < sources.length; i++) {
+	    sources[i] = read(args[first + i]);
+	}
+	TreeConstants.self.getString();	// intern the predefined names
+	initialStrings = symbols(AbstractTable.stringtable);
+	initialIds = symbols(AbstractTable.idtable);
+	initialInts = symbols(AbstractTable.inttable);
+
+	long tokens = lexAll(sources) * rounds;
+	// warm up both versions before measuring
+	installLocked();
+	run(sources, rounds, 4);
+	installStriped();
+	run(sources, rounds, 4);
+
+	System.out.println("threads\tlocked ms\tstriped ms\tspeedup");
+	for (int threads = 1; threads <= 64; threads *= 2) {
+	    installLocked();
+	    long locked = run(sources, rounds, threads);
+	    installStriped();
+	    long striped = run(sources, rounds, threads);
+	    System.out.println(threads + "\t" + locked / 1000000 + "\t\t"
+			       + striped / 1000000 + "\t\t"
+			       + (double)(locked * 100 / striped) / 100);
+	}
+	System.out.println(tokens + " tokens per thread");
+    }
+}
@@ -1 +0,0 @@
-/usr/class/cs143/cool/src/PA4J/ListNode.java
\ No newline at end of file
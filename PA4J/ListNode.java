@@ -0,0 +1,129 @@
+import java.io.PrintStream;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/** The base class of the AST's list phyla (Classes, Features, Formals,
+ * Expressions and Cases).
+ *
+ * The elements are kept in an array.  While the parser builds a list,
+ * addElement() grows the array as needed; once the list is complete,
+ * freeze() trims it to the exact length and makes the list read only.
+ * The constructors of the nodes that hold lists freeze them, so every
+ * list in a finished AST is frozen.  Lists are not synchronized: after
+ * they are frozen they can be read from any thread.
+ *
+ * Traversals should use getLength() and getNth(); getElements() is
+ * kept for code that enumerates.
+ * */
+abstract class ListNode extends TreeNode {
+    private static final TreeNode[] EMPTY = new TreeNode[0];
+
+    private TreeNode[] elements;
+    private int length;
+    private boolean frozen;
+
+    /** Builds a frozen list of the given elements.  The array is used as
+     * it is, so it must not be changed afterwards. */
+    protected ListNode(int lineNumber, TreeNode[] elements) {
+	super(lineNumber);
+	this.elements = elements;
+	length = elements.length;
+	frozen = true;
+    }
+
+    /** Builds an empty list, for addElement(). */
+    protected ListNode(int lineNumber) {
+	super(lineNumber);
+	elements = EMPTY;
+	length = 0;
+	frozen = false;
+    }
+
+    /** Returns the class of the list's elements. */
+    public abstract Class getElementClass();
+
+    /** Returns copies of the elements, for copy(). */
+    protected TreeNode[] copyElements() {
+	TreeNode[] cp = new TreeNode[length];
+	for (int i = 0; i < length; i++) {
+	    cp[i] = elements[i].copy();
+	}
+	return cp;
+    }
+
+    /** Returns the nth element of the list, counting from 0. */
+    public TreeNode getNth(int n) {
+	if (n >= length) {
+	    throw new ArrayIndexOutOfBoundsException(n);
+	}
+	return elements[n];
+    }
+
+    public int getLength() {
+	return length;
+    }
+
+    public Enumeration getElements() {
+	return new Enumeration() {
+		private int i = 0;
+
+		public boolean hasMoreElements() {
+		    return i < length;
+		}
+
+		public Object nextElement() {
+		    if (i >= length) {
+			throw new NoSuchElementException();
+		    }
+		    return elements[i++];
+		}
+	    };
+    }
+
+    /** Appends an element.  The list must not be frozen. */
+    public void addElement(TreeNode node) {
+	if (frozen) {
+	    throw new IllegalStateException("addElement on a frozen list");
+	}
+	if (length == elements.length) {
+	    TreeNode[] grown = new TreeNode[Math.max(4, 2 * length)];
+	    System.arraycopy(elements, 0, grown, 0, length);
+	    elements = grown;
+	}
+	elements[length++] = node;
+    }
+
+    /** Trims the list to its length and makes it read only.  Freezing a
+     * frozen list does nothing. */
+    public void freeze() {
+	if (frozen) {
+	    return;
+	}
+	if (elements.length != length) {
+	    TreeNode[] exact = length == 0 ? EMPTY : new TreeNode[length];
+	    System.arraycopy(elements, 0, exact, 0, length);
+	    elements = exact;
+	}
+	frozen = true;
+    }
+
+    public boolean isFrozen() {
+	return frozen;
+    }
+
+    public void dump(PrintStream out, int n) {
+	out.println(Utilities.pad(n) + "list");
+	for (int i = 0; i < length; i++) {
+	    elements[i].dump(out, n + 2);
+	}
+	out.println(Utilities.pad(n) + "(end_of_list)");
+    }
+
+    public String toString() {
+	StringBuffer buf = new StringBuffer("[");
+	for (int i = 0; i < length; i++) {
+	    buf.append(i > 0 ? ", " : "").append(elements[i]);
+	}
+	return buf.append(']').toString();
+    }
+}
@@ -0,0 +1 @@
+../PA2J/PackedTokens.java
\ No newline at end of file
@@ -0,0 +1,139 @@
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Thread-safe replacements for the global string, identifier and
+ * integer tables.
+ *
+ * The tables in AbstractTable are shared by every lexer and by the
+ * TreeConstants initializers, but AbstractTable.addString is not safe
+ * to call from several threads: two lexers interning the same new
+ * string could both miss and create two different symbols for it, and
+ * the symbols are compared by identity everywhere else in the compiler.
+ *
+ * The tables installed here keep AbstractTable's contract (one symbol
+ * per string, indices dense and in order of insertion) without a global
+ * lock.  Lookups of strings that are already interned, which is almost
+ * every identifier in a program, read a ConcurrentHashMap and take no
+ * lock at all.  A miss takes one of a fixed set of stripe locks chosen
+ * by the string's hash, so that only threads adding the same string
+ * wait for each other; the new symbol is then appended to the table
+ * under the table's own lock to get its index.
+ *
+ * install() swaps the static tables for these.  Symbols already in the
+ * old tables are carried over, so symbols created before the swap (e.g.
+ * those in TreeConstants) remain valid.
+ * */
+class SharedTables {
+    /** Number of stripe locks per table; a power of two */
+    static final int STRIPES = 64;
+
+    /** The interning logic shared by the three tables. */
+    static class Interner {
+	private AbstractTable table;
+	private ConcurrentHashMap symbols = new ConcurrentHashMap();
+	private Object[] locks = new Object[STRIPES];
+
+	Interner(AbstractTable table) {
+	    this.table = table;
+	    for (int i = 0; i < locks.length; i++) {
+		locks[i] = new Object();
+	    }
+	}
+
+	AbstractSymbol addString(String s, int maxchars) {
+	    String key = s.length() > maxchars ? s.substring(0, maxchars) : s;
+	    AbstractSymbol sym = (AbstractSymbol)symbols.get(key);
+	    if (sym != null) {
+		return sym;
+	    }
+	    int h = key.hashCode();
+	    synchronized (locks[(h ^ (h >>> 16)) & (STRIPES - 1)]) {
+		sym = (AbstractSymbol)symbols.get(key);
+		if (sym == null) {
+		    sym = append(key);
+		    symbols.put(key, sym);
+		}
+	    }
+	    return sym;
+	}
+
+	AbstractSymbol lookup(String s) {
+	    return (AbstractSymbol)symbols.get(s);
+	}
+
+	/** Creates the symbol for a string not yet in the table and gives
+	 * it the next index. */
+	private AbstractSymbol append(String s) {
+	    synchronized (table.tbl) {
+		AbstractSymbol sym =
+		    table.getNewSymbol(s, s.length(), table.tbl.size());
+		table.tbl.addElement(sym);
+		return sym;
+	    }
+	}
+
+	/** Takes over the symbols of an existing table, keeping their
+	 * indices. */
+	void copy(AbstractTable from) {
+	    for (Enumeration e = from.getSymbols(); e.hasMoreElements(); ) {
+		AbstractSymbol sym = (AbstractSymbol)e.nextElement();
+		table.tbl.addElement(sym);
+		symbols.put(sym.getString(), sym);
+	    }
+	}
+    }
+
+    static class SharedStringTable extends StringTable {
+	Interner interner = new Interner(this);
+
+	public AbstractSymbol addString(String s, int maxchars) {
+	    return interner.addString(s, maxchars);
+	}
+
+	public AbstractSymbol lookup(String s) {
+	    return interner.lookup(s);
+	}
+    }
+
+    static class SharedIdTable extends IdTable {
+	Interner interner = new Interner(this);
+
+	public AbstractSymbol addString(String s, int maxchars) {
+	    return interner.addString(s, maxchars);
+	}
+
+	public AbstractSymbol lookup(String s) {
+	    return interner.lookup(s);
+	}
+    }
+
+    static class SharedIntTable extends IntTable {
+	Interner interner = new Interner(this);
+
+	public AbstractSymbol addString(String s, int maxchars) {
+	    return interner.addString(s, maxchars);
+	}
+
+	public AbstractSymbol lookup(String s) {
+	    return interner.lookup(s);
+	}
+    }
+
+    /** Replaces the tables in AbstractTable with thread-safe ones.  Must
+     * be called before any worker thread starts; calling it again has no
+     * effect. */
+    static synchronized void install() {
+	if (AbstractTable.idtable instanceof SharedIdTable) {
+	    return;
+	}
+	SharedStringTable strings = new SharedStringTable();
+	strings.interner.copy(AbstractTable.stringtable);
+	SharedIdTable ids = new SharedIdTable();
+	ids.interner.copy(AbstractTable.idtable);
+	SharedIntTable ints = new SharedIntTable();
+	ints.interner.copy(AbstractTable.inttable);
+	AbstractTable.stringtable = strings;
+	AbstractTable.idtable = ids;
+	AbstractTable.inttable = ints;
+    }
+}
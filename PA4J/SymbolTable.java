@@ -0,0 +1,229 @@
+/** Implements the symbol table data abstraction.
+ *
+ * A symbol table maps names to whatever information the compiler has
+ * associated with them (e.g. the declared type of an identifier), and
+ * manages scope: enterScope() opens a new scope, addId() binds a name in
+ * the innermost scope, hiding any outer binding of the name, and
+ * exitScope() discards the innermost scope and its bindings.
+ *
+ * The current binding of every name is kept in a hash table keyed by
+ * the name's index in its string table, so lookup() costs the same
+ * however many scopes are open.  addId() records the binding it
+ * replaces in an undo log, and exitScope() puts back the bindings
+ * recorded since the matching enterScope().  Bindings of symbols from different tables
+ * (identifiers and string constants, say) would share slots, so the
+ * names in one symbol table should all come from the same table; in
+ * semant they are all identifiers.
+ *
+ * The table is not synchronized.  Each TypeEnv has its own.
+ * */
+class SymbolTable {
+    /** Symbol index -> current binding, open addressed: keys holds the
+     * index + 1 of the name in each slot, 0 for an empty slot.  A table
+     * only holds the names bound in it, so it stays small whatever the
+     * size of the string table.  Slots are only emptied, all at once,
+     * when the outermost scope is exited. */
+    private int[] keys = new int[32];
+    private Object[] bindings = new Object[32];
+    /** The scope (1 for the outermost) of the current binding */
+    private int[] scopes = new int[32];
+    private int used = 0;
+
+    /** The undo log: for each addId, the name and its index, and its
+     * binding and scope before the call */
+    private AbstractSymbol[] undoName = new AbstractSymbol[64];
+    private int[] undoIndex = new int[64];
+    private Object[] undoBinding = new Object[64];
+    private int[] undoScope = new int[64];
+    private int undoSize = 0;
+
+    /** The size of the undo log when each open scope was entered */
+    private int[] marks = new int[16];
+    private int depth = 0;
+
+    /** Creates an empty symbol table. */
+    public SymbolTable() {
+    }
+
+    /** Enters a new scope.  A scope must be entered before anything can
+     * be added to the table. */
+    public void enterScope() {
+	if (depth == marks.length) {
+	    marks = grow(marks);
+	}
+	marks[depth++] = undoSize;
+    }
+
+    /** Exits the most recently entered scope. */
+    public void exitScope() {
+	if (depth == 0) {
+	    Utilities.fatalError("existScope: can't remove scope from an empty symbol table.");
+	}
+	int mark = marks[--depth];
+	while (undoSize > mark) {
+	    undoSize--;
+	    int i = slot(undoIndex[undoSize]);
+	    bindings[i] = undoBinding[undoSize];
+	    scopes[i] = undoScope[undoSize];
+	    undoName[undoSize] = null;
+	    undoBinding[undoSize] = null;
+	}
+	if (depth == 0) {
+	    // nothing is bound any more: let the bindings go
+	    keys = new int[32];
+	    bindings = new Object[32];
+	    scopes = new int[32];
+	    used = 0;
+	}
+    }
+
+    /** Adds a new entry to the symbol table.
+     *
+     * @param id the symbol
+     * @param info the data associated with id
+     * */
+    public void addId(AbstractSymbol id, Object info) {
+	if (depth == 0) {
+	    Utilities.fatalError("addId: can't add a symbol without a scope.");
+	}
+	int i = slot(id.index);
+	if (keys[i] == 0) {
+	    if (2 * (used + 1) > keys.length) {
+		rehash();
+		i = slot(id.index);
+	    }
+	    keys[i] = id.index + 1;
+	    used++;
+	}
+	if (undoSize == undoIndex.length) {
+	    undoIndex = grow(undoIndex);
+	    undoScope = grow(undoScope);
+	    AbstractSymbol[] n = new AbstractSymbol[2 * undoName.length];
+	    System.arraycopy(undoName, 0, n, 0, undoSize);
+	    undoName = n;
+	    Object[] b = new Object[2 * undoBinding.length];
+	    System.arraycopy(undoBinding, 0, b, 0, undoSize);
+	    undoBinding = b;
+	}
+	undoName[undoSize] = id;
+	undoIndex[undoSize] = id.index;
+	undoBinding[undoSize] = bindings[i];
+	undoScope[undoSize] = scopes[i];
+	undoSize++;
+	bindings[i] = info;
+	scopes[i] = depth;
+    }
+
+    /** Looks up an item through all scopes of the symbol table.  If
+     * found it returns the associated information field, if not it
+     * returns <code>null</code>.
+     *
+     * @param sym the symbol
+     * @return the info associated with sym, or null if not found
+     * */
+    public Object lookup(AbstractSymbol sym) {
+	if (depth == 0) {
+	    Utilities.fatalError("lookup: no scope in symbol table.");
+	}
+	return bindings[slot(sym.index)];
+    }
+
+    /** Probes the symbol table.  Check the top scope (only) for the
+     * symbol <code>sym</code>.  If found, return the information field.
+     * If not return <code>null</code>.
+     *
+     * @param sym the symbol
+     * @return the info associated with sym, or null if not found
+     * */
+    public Object probe(AbstractSymbol sym) {
+	if (depth == 0) {
+	    Utilities.fatalError("lookup: no scope in symbol table.");
+	}
+	int i = slot(sym.index);
+	return scopes[i] == depth ? bindings[i] : null;
+    }
+
+    /** Gets the string representation of the symbol table: the bindings
+     * made in each open scope, outermost first, in the order they were
+     * made.  Later bindings of a name in the same scope replace earlier
+     * ones.
+     *
+     * @return the string rep
+     * */
+    public String toString() {
+	StringBuffer buf = new StringBuffer("[");
+	for (int s = 0; s < depth; s++) {
+	    int end = s + 1 < depth ? marks[s + 1] : undoSize;
+	    buf.append(s > 0 ? ", {" : "{");
+	    boolean first = true;
+	    for (int u = marks[s]; u < end; u++) {
+		int i = undoIndex[u];
+		if (later(i, u, end)) {
+		    continue;
+		}
+		buf.append(first ? "" : ", ").append(undoName[u].getString())
+		    .append('=').append(binding(u + 1, i));
+		first = false;
+	    }
+	    buf.append('}');
+	}
+	return buf.append(']').toString();
+    }
+
+    /** Is the name with index i bound again in the log between u + 1
+     * and end? */
+    private boolean later(int i, int u, int end) {
+	for (int v = u + 1; v < end; v++) {
+	    if (undoIndex[v] == i) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /** The binding the name with index i had just before the log entry
+     * at u was made, or its current binding if u is the end of the
+     * log. */
+    private Object binding(int u, int i) {
+	for (int v = u; v < undoSize; v++) {
+	    if (undoIndex[v] == i) {
+		return undoBinding[v];
+	    }
+	}
+	return bindings[slot(i)];
+    }
+
+    /** The slot of the symbol with the given index: the one that holds
+     * it, or the empty one where it would go. */
+    private int slot(int index) {
+	int mask = keys.length - 1;
+	int i = index & mask;
+	while (keys[i] != 0 && keys[i] != index + 1) {
+	    i = (i + 1) & mask;
+	}
+	return i;
+    }
+
+    private void rehash() {
+	int[] k = keys;
+	Object[] b = bindings;
+	int[] s = scopes;
+	keys = new int[2 * k.length];
+	bindings = new Object[2 * k.length];
+	scopes = new int[2 * k.length];
+	for (int j = 0; j < k.length; j++) {
+	    if (k[j] != 0) {
+		int i = slot(k[j] - 1);
+		keys[i] = k[j];
+		bindings[i] = b[j];
+		scopes[i] = s[j];
+	    }
+	}
+    }
+
+    private static int[] grow(int[] a) {
+	int[] b = new int[2 * a.length];
+	System.arraycopy(a, 0, b, 0, a.length);
+	return b;
+    }
+}
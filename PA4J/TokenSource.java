@@ -0,0 +1 @@
+../PA2J/TokenSource.java
\ No newline at end of file
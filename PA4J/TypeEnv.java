@@ -0,0 +1,251 @@
+import java.util.BitSet;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** The environment in which the features of one class are type checked:
+ * the class itself (C in the type rules), the identifiers in scope (O)
+ * and, through the class table, the methods of every class (M).
+ *
+ * The errors found in the class are kept here rather than printed, and
+ * report() prints them.  The environment also records the name of every
+ * class the check looked up: declared types, static dispatch targets,
+ * the classes whose methods were looked up and the types compared for
+ * conformance or joined.  The result of the check can only change if
+ * the declaration of one of those classes, or of one of their
+ * ancestors, changes; IncrementalSemant uses this to decide which
+ * classes to check again after an edit.
+ *
+ * Once the ClassTable is built, checking a class only reads it and the
+ * other classes' declarations, and writes nothing but the types in the
+ * class's own AST and its own environment, so checkAll() checks
+ * different classes on different threads.  The errors are printed
+ * afterwards, one environment after another, in the same order as a
+ * sequential check would print them.
+ * */
+class TypeEnv {
+    ClassTable table;
+    class_c cls;
+
+    /** Identifier -> declared type, while check() runs.  Dropped
+     * afterwards: it holds a binding for every inherited attribute,
+     * and nothing after the check needs it. */
+    SymbolTable objects;
+
+    /** Method name -> method, for the methods declared in cls so far */
+    Hashtable methods = new Hashtable();
+
+    /** The type id of cls, which SELF_TYPE stands for */
+    int self;
+
+    /** The classes the check depends on, by the index of their names in
+     * the id table */
+    private BitSet deps = new BitSet();
+
+    /** The errors found: the node and the message */
+    private Vector errorNodes = new Vector();
+    private Vector errorMessages = new Vector();
+
+    /** The number of threads checkAll() uses: 1 (the default) to check
+     * on the calling thread, 0 for the common fork-join pool */
+    static int jobs = 1;
+
+    /** Fewer classes than this are checked on the calling thread */
+    static final int PARALLEL_CLASSES = 64;
+
+    /** The number of classes one task checks without splitting */
+    private static final int GRAIN = 8;
+
+    TypeEnv(ClassTable table, class_c cls) {
+	this.table = table;
+	this.cls = cls;
+	self = table.typeId(cls.getName());
+    }
+
+    /** Type checks cls.  The table must have been built without
+     * errors. */
+    void check() {
+	depend(cls.getName());
+	objects = new SymbolTable();
+	objects.enterScope();
+	objects.addId(TreeConstants.self, TreeConstants.SELF_TYPE);
+	ClassLayout inherited = table.layout(cls.getParent());
+	if (inherited != null) {
+	    for (int i = 0; i < inherited.attrCount(); i++) {
+		attr a = inherited.attrAt(i);
+		objects.addId(a.getName(), a.getType());
+	    }
+	}
+	// the class's own attributes go in a scope of their own, so that
+	// they can be told apart from inherited ones
+	objects.enterScope();
+	cls.semant(this);
+	objects.exitScope();
+	objects.exitScope();
+	objects = null;
+    }
+
+    /** Checks the given environments, which must share a table built
+     * without errors.  Nothing is printed. */
+    static void checkAll(TypeEnv[] envs) {
+	if (jobs == 1 || envs.length < PARALLEL_CLASSES) {
+	    for (int i = 0; i < envs.length; i++) {
+		envs[i].check();
+	    }
+	} else if (jobs <= 0) {
+	    ForkJoinPool.commonPool().invoke(new CheckTask(envs, 0, envs.length));
+	} else {
+	    ForkJoinPool pool = new ForkJoinPool(jobs);
+	    try {
+		pool.invoke(new CheckTask(envs, 0, envs.length));
+	    } finally {
+		pool.shutdown();
+	    }
+	}
+    }
+
+    /** Checks envs[lo] to envs[hi - 1], splitting the range in halves
+     * until the pieces are small. */
+    private static class CheckTask extends RecursiveAction {
+	private TypeEnv[] envs;
+	private int lo;
+	private int hi;
+
+	CheckTask(TypeEnv[] envs, int lo, int hi) {
+	    this.envs = envs;
+	    this.lo = lo;
+	    this.hi = hi;
+	}
+
+	protected void compute() {
+	    if (hi - lo <= GRAIN) {
+		for (int i = lo; i < hi; i++) {
+		    envs[i].check();
+		}
+	    } else {
+		int mid = (lo + hi) >>> 1;
+		invokeAll(new CheckTask(envs, lo, mid),
+			  new CheckTask(envs, mid, hi));
+	    }
+	}
+    }
+
+    /** Records that the check depends on the declaration of the named
+     * class. */
+    void depend(AbstractSymbol name) {
+	deps.set(name.index);
+    }
+
+    /** Does the check depend on any of the given classes?  They are given
+     * by the index of their names in the id table. */
+    boolean depends_on(BitSet names) {
+	return deps.intersects(names);
+    }
+
+    /** The type id of the named class, or -1 if it is not defined.
+     * SELF_TYPE stands for cls. */
+    int id(AbstractSymbol type) {
+	if (type == TreeConstants.SELF_TYPE) {
+	    return self;
+	}
+	depend(type);
+	return table.typeId(type);
+    }
+
+    void error(TreeNode t, String message) {
+	errorNodes.addElement(t);
+	errorMessages.addElement(message);
+    }
+
+    /** Prints the errors found by check() through the given table, with
+     * the current line numbers of the nodes. */
+    void report(ClassTable table) {
+	for (int i = 0; i < errorNodes.size(); i++) {
+	    TreeNode t = (TreeNode)errorNodes.elementAt(i);
+	    table.semantError(cls.getFilename(), t)
+		.println((String)errorMessages.elementAt(i));
+	}
+    }
+
+    /** Is type the name of a class?  SELF_TYPE is not. */
+    boolean defined(AbstractSymbol type) {
+	return type != TreeConstants.SELF_TYPE && id(type) >= 0;
+    }
+
+    /** Does type a conform to type b, with SELF_TYPE standing for
+     * SELF_TYPE of cls?  No_type, the type of a missing expression,
+     * conforms to everything.  An undefined a, which has been reported
+     * where it was declared, is taken to be Object, as join() does, so
+     * that the mistake is not reported again. */
+    boolean conforms(AbstractSymbol a, AbstractSymbol b) {
+	if (a == b || a == TreeConstants.No_type) {
+	    return true;
+	}
+	if (b == TreeConstants.SELF_TYPE) {
+	    return false;
+	}
+	int x = id(a);
+	int y = id(b);
+	if (x < 0) {
+	    x = id(TreeConstants.Object_);
+	}
+	return y >= 0 && table.conforms(x, y);
+    }
+
+    /** The least type both a and b conform to. */
+    AbstractSymbol join(AbstractSymbol a, AbstractSymbol b) {
+	if (a == b || b == TreeConstants.No_type) {
+	    return a;
+	}
+	if (a == TreeConstants.No_type) {
+	    return b;
+	}
+	int x = id(a);
+	int y = id(b);
+	if (x < 0 || y < 0) {
+	    return TreeConstants.Object_;
+	}
+	return table.typeName(table.join(x, y));
+    }
+
+    /** The method name of objects of the given type, or null. */
+    method lookup_method(AbstractSymbol type, AbstractSymbol name) {
+	int id = id(type);
+	return id >= 0 ? table.layout(id).lookupMethod(name) : null;
+    }
+
+    /** Checks a call of method name on an object of the given type,
+     * whose actuals have already been type checked.
+     *
+     * @param t the dispatch node, for errors
+     * @param receiver the type of the object the method is called on;
+     * replaces SELF_TYPE in the method's return type
+     * @return the type of the call
+     * */
+    AbstractSymbol call(TreeNode t, AbstractSymbol type, AbstractSymbol name,
+			Expressions actual, AbstractSymbol receiver) {
+	method m = lookup_method(type, name);
+	if (m == null) {
+	    error(t, "Dispatch to undefined method " + name + ".");
+	    return TreeConstants.Object_;
+	}
+	Formals formals = m.getFormals();
+	if (formals.getLength() != actual.getLength()) {
+	    error(t, "Method " + name + " called with wrong number of arguments.");
+	} else {
+	    for (int i = 0; i < formals.getLength(); i++) {
+		formalc f = (formalc)formals.getNth(i);
+		AbstractSymbol a = ((Expression)actual.getNth(i)).get_type();
+		if (!conforms(a, f.getType())) {
+		    error(t, "In call of method " + name + ", type " + a
+			  + " of parameter " + f.getName()
+			  + " does not conform to declared type "
+			  + f.getType() + ".");
+		}
+	    }
+	}
+	return m.getReturnType() == TreeConstants.SELF_TYPE
+	    ? receiver : m.getReturnType();
+    }
+}
@@ -20,3 +20,62 @@ Class Main {
 	 }
 	};
 };
+
+-- Errors in the inheritance graph stop semant before any class is type
+-- checked, so they are in badparents.cl and badcycle.cl instead.
+
+-- redefinitions and declarations
+class A {
+	x : Int;
+	x : Bool;
+	self : Int;
+	u : Undef;
+	s : String <- 3;
+	f() : Int { 1 };
+	f() : Int { 2 };
+	g(self : Int) : Int { 1 };
+	h(p : Int, p : Int) : Int { p };
+	k(p : SELF_TYPE) : Int { 1 };
+	m() : Nope { 1 };
+	-- only the undefined type is reported, not the return type too
+	n() : Object { let y : Undef <- 2 in y };
+	o() : SELF_TYPE { new A };
+};
+
+-- overrides that do not match
+class B inherits A {
+	x : Int;
+	f(a : Int) : Int { a };
+	g(q : Bool) : Int { 1 };
+	h(p : Int, q : Int) : Bool { true };
+};
+
+-- self and SELF_TYPE misuse, case, let and dispatch
+class S {
+	bad_assign_self() : Object { self <- new S };
+	bad_let_self() : Object { let self : S in 1 };
+	bad_case(o : Object) : Object {
+	    case o of
+		self : S => 1;
+		z : SELF_TYPE => 2;
+		w : Missing => 3;
+		v : Int => 4;
+		u : Int => 5;
+	    esac
+	};
+	bad_let_init() : Object { let i : Int <- "x" in i };
+	bad_static_self() : Object { self@SELF_TYPE.bad_let_self() };
+	bad_static_undefined() : Object { self@Nowhere.bad_let_self() };
+	bad_static_type() : Object { self@A.f() };
+	bad_method() : Object { (new S).nothing() };
+	bad_args() : Object { (new C).init(true, 1) };
+	bad_new() : Object { new Gone };
+	bad_if() : Object { if 1 then 2 else 3 fi };
+	bad_loop() : Object { while 1 loop 2 pool };
+	bad_plus() : Object { 1 + true };
+	bad_eq() : Object { 1 = "one" };
+	bad_not() : Object { not 1 };
+	bad_neg() : Object { ~true };
+	bad_id() : Object { nobody };
+	bad_assign() : Object { nobody <- 1 };
+};
@@ -0,0 +1,17 @@
+-- An inheritance cycle, and a class that inherits from it.
+
+class Main {
+	main() : Object { 0 };
+};
+
+class X inherits Y {
+};
+
+class Y inherits Z {
+};
+
+class Z inherits X {
+};
+
+class W inherits X {
+};
@@ -0,0 +1,29 @@
+-- Redefined classes and bad parents.  Any of these stops semant before
+-- cycles are looked for or classes are type checked.
+
+class Main {
+	main() : Object { 0 };
+};
+
+class Main {
+	main() : Object { 1 };
+};
+
+class Int {
+	x : Int;
+};
+
+class I inherits Int {
+};
+
+class B inherits Bool {
+};
+
+class S inherits String {
+};
+
+class T inherits SELF_TYPE {
+};
+
+class U inherits Undefined {
+};
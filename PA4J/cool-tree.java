@@ -6,9 +6,10 @@
 //
 //////////////////////////////////////////////////////////
 
-import java.util.Enumeration;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Vector;
+import java.util.BitSet;
+import java.util.Hashtable;
 
 
 /** Defines simple phylum Program */
@@ -18,6 +19,8 @@ abstract class Program extends TreeNode {
     }
     public abstract void dump_with_types(PrintStream out, int n);
     public abstract void semant();
+    /** Writes this subtree to a binary AST */
+    public abstract void write(AstWriter out) throws IOException;
 
 }
 
@@ -28,6 +31,10 @@ abstract class Class_ extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    /** Adds delta to the line numbers of this subtree */
+    public abstract void shift_lines(int delta);
+    /** Writes this subtree to a binary AST */
+    public abstract void write(AstWriter out) throws IOException;
 
 }
 
@@ -41,7 +48,7 @@ class Classes extends ListNode {
     public Class getElementClass() {
         return elementClass;
     }
-    protected Classes(int lineNumber, Vector elements) {
+    protected Classes(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Classes" list */
@@ -56,6 +63,20 @@ class Classes extends ListNode {
     public TreeNode copy() {
         return new Classes(lineNumber, copyElements());
     }
+    /** Adds delta to the line numbers of this list and its elements */
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        for (int i = 0; i < getLength(); i++) {
+            ((Class_)getNth(i)).shift_lines(delta);
+        }
+    }
+    /** Writes this list to a binary AST */
+    public void write(AstWriter out) throws IOException {
+        out.writeList(this);
+        for (int i = 0; i < getLength(); i++) {
+            ((Class_)getNth(i)).write(out);
+        }
+    }
 }
 
 
@@ -65,6 +86,13 @@ abstract class Feature extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void shift_lines(int delta);
+    /** Enters the feature in the environment and checks its declaration */
+    public abstract void declare(TypeEnv env);
+    /** Type checks the body or initializer of the feature */
+    public abstract void semant(TypeEnv env);
+    /** Writes this subtree to a binary AST */
+    public abstract void write(AstWriter out) throws IOException;
 
 }
 
@@ -78,7 +106,7 @@ class Features extends ListNode {
     public Class getElementClass() {
         return elementClass;
     }
-    protected Features(int lineNumber, Vector elements) {
+    protected Features(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Features" list */
@@ -93,6 +121,20 @@ class Features extends ListNode {
     public TreeNode copy() {
         return new Features(lineNumber, copyElements());
     }
+    /** Adds delta to the line numbers of this list and its elements */
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        for (int i = 0; i < getLength(); i++) {
+            ((Feature)getNth(i)).shift_lines(delta);
+        }
+    }
+    /** Writes this list to a binary AST */
+    public void write(AstWriter out) throws IOException {
+        out.writeList(this);
+        for (int i = 0; i < getLength(); i++) {
+            ((Feature)getNth(i)).write(out);
+        }
+    }
 }
 
 
@@ -102,6 +144,9 @@ abstract class Formal extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void shift_lines(int delta);
+    /** Writes this subtree to a binary AST */
+    public abstract void write(AstWriter out) throws IOException;
 
 }
 
@@ -115,7 +160,7 @@ class Formals extends ListNode {
     public Class getElementClass() {
         return elementClass;
     }
-    protected Formals(int lineNumber, Vector elements) {
+    protected Formals(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Formals" list */
@@ -130,6 +175,20 @@ class Formals extends ListNode {
     public TreeNode copy() {
         return new Formals(lineNumber, copyElements());
     }
+    /** Adds delta to the line numbers of this list and its elements */
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        for (int i = 0; i < getLength(); i++) {
+            ((Formal)getNth(i)).shift_lines(delta);
+        }
+    }
+    /** Writes this list to a binary AST */
+    public void write(AstWriter out) throws IOException {
+        out.writeList(this);
+        for (int i = 0; i < getLength(); i++) {
+            ((Formal)getNth(i)).write(out);
+        }
+    }
 }
 
 
@@ -142,12 +201,17 @@ abstract class Expression extends TreeNode {
     public AbstractSymbol get_type() { return type; }           
     public Expression set_type(AbstractSymbol s) { type = s; return this; } 
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void shift_lines(int delta);
+    /** Type checks this expression, sets its type and returns it */
+    public abstract AbstractSymbol semant(TypeEnv env);
     public void dump_type(PrintStream out, int n) {
         if (type != null)
             { out.println(Utilities.pad(n) + ": " + type.getString()); }
         else
             { out.println(Utilities.pad(n) + ": _no_type"); }
     }
+    /** Writes this subtree to a binary AST */
+    public abstract void write(AstWriter out) throws IOException;
 
 }
 
@@ -161,7 +225,7 @@ class Expressions extends ListNode {
     public Class getElementClass() {
         return elementClass;
     }
-    protected Expressions(int lineNumber, Vector elements) {
+    protected Expressions(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Expressions" list */
@@ -176,6 +240,20 @@ class Expressions extends ListNode {
     public TreeNode copy() {
         return new Expressions(lineNumber, copyElements());
     }
+    /** Adds delta to the line numbers of this list and its elements */
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        for (int i = 0; i < getLength(); i++) {
+            ((Expression)getNth(i)).shift_lines(delta);
+        }
+    }
+    /** Writes this list to a binary AST */
+    public void write(AstWriter out) throws IOException {
+        out.writeList(this);
+        for (int i = 0; i < getLength(); i++) {
+            ((Expression)getNth(i)).write(out);
+        }
+    }
 }
 
 
@@ -185,6 +263,11 @@ abstract class Case extends TreeNode {
         super(lineNumber);
     }
     public abstract void dump_with_types(PrintStream out, int n);
+    public abstract void shift_lines(int delta);
+    /** Type checks this branch and returns the type of its body */
+    public abstract AbstractSymbol semant(TypeEnv env);
+    /** Writes this subtree to a binary AST */
+    public abstract void write(AstWriter out) throws IOException;
 
 }
 
@@ -198,7 +281,7 @@ class Cases extends ListNode {
     public Class getElementClass() {
         return elementClass;
     }
-    protected Cases(int lineNumber, Vector elements) {
+    protected Cases(int lineNumber, TreeNode[] elements) {
         super(lineNumber, elements);
     }
     /** Creates an empty "Cases" list */
@@ -213,6 +296,20 @@ class Cases extends ListNode {
     public TreeNode copy() {
         return new Cases(lineNumber, copyElements());
     }
+    /** Adds delta to the line numbers of this list and its elements */
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        for (int i = 0; i < getLength(); i++) {
+            ((Case)getNth(i)).shift_lines(delta);
+        }
+    }
+    /** Writes this list to a binary AST */
+    public void write(AstWriter out) throws IOException {
+        out.writeList(this);
+        for (int i = 0; i < getLength(); i++) {
+            ((Case)getNth(i)).write(out);
+        }
+    }
 }
 
 
@@ -229,6 +326,7 @@ class programc extends Program {
     public programc(int lineNumber, Classes a1) {
         super(lineNumber);
         classes = a1;
+        classes.freeze();
     }
     public TreeNode copy() {
         return new programc(lineNumber, (Classes)classes.copy());
@@ -242,9 +340,9 @@ class programc extends Program {
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
         out.println(Utilities.pad(n) + "_program");
-        for (Enumeration e = classes.getElements(); e.hasMoreElements(); ) {
+        for (int i = 0; i < classes.getLength(); i++) {
             // sm: changed 'n + 1' to 'n + 2' to match changes elsewhere
-	    ((Class_)e.nextElement()).dump_with_types(out, n + 2);
+	    ((Class_)classes.getNth(i)).dump_with_types(out, n + 2);
         }
     }
     /** This method is the entry point to the semantic checker.  You will
@@ -264,16 +362,44 @@ class programc extends Program {
     */
     public void semant() {
 	/* ClassTable constructor may do some semantic analysis */
-	ClassTable classTable = new ClassTable(classes);
-	
-	/* some semantic analysis code may go here */
+	semant(new ClassTable(classes));
+    }
 
-	if (classTable.errors()) {
+    /** Type checks the program with a class table that has already
+        checked its classes (see ClassPipeline). */
+    public void semant(ClassTable classTable) {
+	if (typecheck(classTable)) {
 	    System.err.println("Compilation halted due to static semantic errors.");
 	    System.exit(1);
 	}
     }
 
+    /** Type checks the program like semant(ClassTable), but returns
+        instead of exiting.
+        @return true if the program has semantic errors */
+    public boolean typecheck(ClassTable classTable) {
+	/* the classes are only type checked if the inheritance graph is
+	   sound */
+	if (!classTable.errors()) {
+	    TypeEnv[] envs = new TypeEnv[classes.getLength()];
+	    for (int i = 0; i < envs.length; i++) {
+		envs[i] = new TypeEnv(classTable, (class_c)classes.getNth(i));
+	    }
+	    /* the classes may be checked in parallel; the errors are
+	       reported in class order */
+	    TypeEnv.checkAll(envs);
+	    for (int i = 0; i < envs.length; i++) {
+		envs[i].report(classTable);
+	    }
+	}
+	return classTable.errors();
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.PROGRAM, lineNumber);
+        classes.write(out);
+    }
+
 }
 
 
@@ -298,6 +424,7 @@ class class_c extends Class_ {
         name = a1;
         parent = a2;
         features = a3;
+        features.freeze();
         filename = a4;
     }
     public TreeNode copy() {
@@ -315,6 +442,7 @@ class class_c extends Class_ {
     public AbstractSymbol getFilename() { return filename; }
     public AbstractSymbol getName()     { return name; }
     public AbstractSymbol getParent()   { return parent; }
+    public Features getFeatures()       { return features; }
 
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
@@ -324,12 +452,40 @@ class class_c extends Class_ {
         out.print(Utilities.pad(n + 2) + "\"");
         Utilities.printEscapedString(out, filename.getString());
         out.println("\"\n" + Utilities.pad(n + 2) + "(");
-        for (Enumeration e = features.getElements(); e.hasMoreElements();) {
-	    ((Feature)e.nextElement()).dump_with_types(out, n + 2);
+        for (int i = 0; i < features.getLength(); i++) {
+	    ((Feature)features.getNth(i)).dump_with_types(out, n + 2);
         }
         out.println(Utilities.pad(n + 2) + ")");
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        features.shift_lines(delta);
+    }
+
+    /** Type checks the features of this class.  The environment has the
+        inherited attributes in scope. */
+    public void semant(TypeEnv env) {
+        for (int i = 0; i < features.getLength(); i++) {
+            ((Feature)features.getNth(i)).declare(env);
+        }
+        if (name == TreeConstants.Main
+            && env.lookup_method(name, TreeConstants.main_meth) == null) {
+            env.error(this, "No 'main' method in class Main.");
+        }
+        for (int i = 0; i < features.getLength(); i++) {
+            ((Feature)features.getNth(i)).semant(env);
+        }
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.CLASS, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(parent);
+        features.write(out);
+        out.writeStringSymbol(filename);
+    }
+
 }
 
 
@@ -353,6 +509,7 @@ class method extends Feature {
         super(lineNumber);
         name = a1;
         formals = a2;
+        formals.freeze();
         return_type = a3;
         expr = a4;
     }
@@ -368,17 +525,96 @@ class method extends Feature {
     }
 
     
+    public AbstractSymbol getName()       { return name; }
+    public Formals getFormals()           { return formals; }
+    public AbstractSymbol getReturnType() { return return_type; }
+
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
         out.println(Utilities.pad(n) + "_method");
         dump_AbstractSymbol(out, n + 2, name);
-        for (Enumeration e = formals.getElements(); e.hasMoreElements();) {
-	    ((Formal)e.nextElement()).dump_with_types(out, n + 2);
+        for (int i = 0; i < formals.getLength(); i++) {
+	    ((Formal)formals.getNth(i)).dump_with_types(out, n + 2);
         }
         dump_AbstractSymbol(out, n + 2, return_type);
 	expr.dump_with_types(out, n + 2);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        formals.shift_lines(delta);
+        expr.shift_lines(delta);
+    }
+
+    public void declare(TypeEnv env) {
+        if (env.methods.containsKey(name)) {
+            env.error(this, "Method " + name + " is multiply defined.");
+            return;
+        }
+        env.methods.put(name, this);
+        Hashtable seen = new Hashtable();
+        for (int i = 0; i < formals.getLength(); i++) {
+            formalc f = (formalc)formals.getNth(i);
+            if (f.getName() == TreeConstants.self) {
+                env.error(f, "'self' cannot be the name of a formal parameter.");
+            } else if (seen.put(f.getName(), f) != null) {
+                env.error(f, "Formal parameter " + f.getName() + " is multiply defined.");
+            }
+            if (f.getType() == TreeConstants.SELF_TYPE) {
+                env.error(f, "Formal parameter " + f.getName() + " cannot have type SELF_TYPE.");
+            } else if (!env.defined(f.getType())) {
+                env.error(f, "Class " + f.getType() + " of formal parameter " + f.getName() + " is undefined.");
+            }
+        }
+        if (return_type != TreeConstants.SELF_TYPE && !env.defined(return_type)) {
+            env.error(this, "Undefined return type " + return_type + " in method " + name + ".");
+        }
+
+        method original = env.lookup_method(env.cls.getParent(), name);
+        if (original == null) {
+            return;
+        }
+        Formals inherited = original.getFormals();
+        if (inherited.getLength() != formals.getLength()) {
+            env.error(this, "Incompatible number of formal parameters in redefined method " + name + ".");
+        } else {
+            for (int i = 0; i < formals.getLength(); i++) {
+                AbstractSymbol t = ((formalc)formals.getNth(i)).getType();
+                AbstractSymbol o = ((formalc)inherited.getNth(i)).getType();
+                if (t != o) {
+                    env.error(this, "In redefined method " + name + ", parameter type " + t + " is different from original type " + o + ".");
+                }
+            }
+        }
+        if (return_type != original.getReturnType()) {
+            env.error(this, "In redefined method " + name + ", return type " + return_type + " is different from original return type " + original.getReturnType() + ".");
+        }
+    }
+
+    public void semant(TypeEnv env) {
+        env.objects.enterScope();
+        for (int i = 0; i < formals.getLength(); i++) {
+            formalc f = (formalc)formals.getNth(i);
+            if (f.getName() != TreeConstants.self && env.objects.probe(f.getName()) == null) {
+                env.objects.addId(f.getName(), f.getType());
+            }
+        }
+        AbstractSymbol t = expr.semant(env);
+        env.objects.exitScope();
+        if ((return_type == TreeConstants.SELF_TYPE || env.defined(return_type))
+            && !env.conforms(t, return_type)) {
+            env.error(this, "Inferred return type " + t + " of method " + name + " does not conform to declared return type " + return_type + ".");
+        }
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.METHOD, lineNumber);
+        out.writeSymbol(name);
+        formals.write(out);
+        out.writeSymbol(return_type);
+        expr.write(out);
+    }
+
 }
 
 
@@ -413,6 +649,9 @@ class attr extends Feature {
     }
 
     
+    public AbstractSymbol getName() { return name; }
+    public AbstractSymbol getType() { return type_decl; }
+
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
         out.println(Utilities.pad(n) + "_attr");
@@ -421,6 +660,41 @@ class attr extends Feature {
 	init.dump_with_types(out, n + 2);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        init.shift_lines(delta);
+    }
+
+    public void declare(TypeEnv env) {
+        if (name == TreeConstants.self) {
+            env.error(this, "'self' cannot be the name of an attribute.");
+        } else if (env.objects.probe(name) != null) {
+            env.error(this, "Attribute " + name + " is multiply defined in class.");
+        } else if (env.objects.lookup(name) != null) {
+            env.error(this, "Attribute " + name + " is an attribute of an inherited class.");
+        } else {
+            if (type_decl != TreeConstants.SELF_TYPE && !env.defined(type_decl)) {
+                env.error(this, "Class " + type_decl + " of attribute " + name + " is undefined.");
+            }
+            env.objects.addId(name, type_decl);
+        }
+    }
+
+    public void semant(TypeEnv env) {
+        AbstractSymbol t = init.semant(env);
+        if ((type_decl == TreeConstants.SELF_TYPE || env.defined(type_decl))
+            && !env.conforms(t, type_decl)) {
+            env.error(this, "Inferred type " + t + " of initialization of attribute " + name + " does not conform to declared type " + type_decl + ".");
+        }
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.ATTR, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(type_decl);
+        init.write(out);
+    }
+
 }
 
 
@@ -451,6 +725,9 @@ class formalc extends Formal {
     }
 
     
+    public AbstractSymbol getName() { return name; }
+    public AbstractSymbol getType() { return type_decl; }
+
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
         out.println(Utilities.pad(n) + "_formal");
@@ -458,6 +735,16 @@ class formalc extends Formal {
         dump_AbstractSymbol(out, n + 2, type_decl);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.FORMAL, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(type_decl);
+    }
+
 }
 
 
@@ -492,6 +779,8 @@ class branch extends Case {
     }
 
     
+    public AbstractSymbol getType() { return type_decl; }
+
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
         out.println(Utilities.pad(n) + "_branch");
@@ -500,6 +789,34 @@ class branch extends Case {
 	expr.dump_with_types(out, n + 2);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        expr.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        if (type_decl == TreeConstants.SELF_TYPE) {
+            env.error(this, "Identifier " + name + " declared with type SELF_TYPE in case branch.");
+        } else if (!env.defined(type_decl)) {
+            env.error(this, "Class " + type_decl + " of case branch is undefined.");
+        }
+        if (name == TreeConstants.self) {
+            env.error(this, "'self' bound in 'case'.");
+        }
+        env.objects.enterScope();
+        env.objects.addId(name, type_decl);
+        AbstractSymbol t = expr.semant(env);
+        env.objects.exitScope();
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.BRANCH, lineNumber);
+        out.writeSymbol(name);
+        out.writeSymbol(type_decl);
+        expr.write(out);
+    }
+
 }
 
 
@@ -538,6 +855,32 @@ class assign extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        expr.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t = expr.semant(env);
+        AbstractSymbol declared = (AbstractSymbol)env.objects.lookup(name);
+        if (name == TreeConstants.self) {
+            env.error(this, "Cannot assign to 'self'.");
+        } else if (declared == null) {
+            env.error(this, "Assignment to undeclared variable " + name + ".");
+        } else if (!env.conforms(t, declared)) {
+            env.error(this, "Type " + t + " of assigned expression does not conform to declared type " + declared + " of identifier " + name + ".");
+        }
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.ASSIGN, lineNumber);
+        out.writeSymbol(name);
+        expr.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -563,6 +906,7 @@ class static_dispatch extends Expression {
         type_name = a2;
         name = a3;
         actual = a4;
+        actual.freeze();
     }
     public TreeNode copy() {
         return new static_dispatch(lineNumber, (Expression)expr.copy(), copy_AbstractSymbol(type_name), copy_AbstractSymbol(name), (Expressions)actual.copy());
@@ -583,13 +927,47 @@ class static_dispatch extends Expression {
         dump_AbstractSymbol(out, n + 2, type_name);
         dump_AbstractSymbol(out, n + 2, name);
         out.println(Utilities.pad(n + 2) + "(");
-        for (Enumeration e = actual.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+        for (int i = 0; i < actual.getLength(); i++) {
+	    ((Expression)actual.getNth(i)).dump_with_types(out, n + 2);
         }
         out.println(Utilities.pad(n + 2) + ")");
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        expr.shift_lines(delta);
+        actual.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t0 = expr.semant(env);
+        for (int i = 0; i < actual.getLength(); i++) {
+            ((Expression)actual.getNth(i)).semant(env);
+        }
+        AbstractSymbol t = TreeConstants.Object_;
+        if (type_name == TreeConstants.SELF_TYPE) {
+            env.error(this, "Static dispatch to SELF_TYPE.");
+        } else if (!env.defined(type_name)) {
+            env.error(this, "Static dispatch to undefined class " + type_name + ".");
+        } else if (!env.conforms(t0, type_name)) {
+            env.error(this, "Expression type " + t0 + " does not conform to declared static dispatch type " + type_name + ".");
+        } else {
+            t = env.call(this, type_name, name, actual, t0);
+        }
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.STATIC_DISPATCH, lineNumber);
+        expr.write(out);
+        out.writeSymbol(type_name);
+        out.writeSymbol(name);
+        actual.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -612,6 +990,7 @@ class dispatch extends Expression {
         expr = a1;
         name = a2;
         actual = a3;
+        actual.freeze();
     }
     public TreeNode copy() {
         return new dispatch(lineNumber, (Expression)expr.copy(), copy_AbstractSymbol(name), (Expressions)actual.copy());
@@ -630,13 +1009,37 @@ class dispatch extends Expression {
 	expr.dump_with_types(out, n + 2);
         dump_AbstractSymbol(out, n + 2, name);
         out.println(Utilities.pad(n + 2) + "(");
-        for (Enumeration e = actual.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+        for (int i = 0; i < actual.getLength(); i++) {
+	    ((Expression)actual.getNth(i)).dump_with_types(out, n + 2);
         }
         out.println(Utilities.pad(n + 2) + ")");
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        expr.shift_lines(delta);
+        actual.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t0 = expr.semant(env);
+        for (int i = 0; i < actual.getLength(); i++) {
+            ((Expression)actual.getNth(i)).semant(env);
+        }
+        AbstractSymbol t = env.call(this, t0, name, actual, t0);
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.DISPATCH, lineNumber);
+        expr.write(out);
+        out.writeSymbol(name);
+        actual.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -680,6 +1083,30 @@ class cond extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        pred.shift_lines(delta);
+        then_exp.shift_lines(delta);
+        else_exp.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        if (pred.semant(env) != TreeConstants.Bool) {
+            env.error(this, "Predicate of 'if' does not have type Bool.");
+        }
+        AbstractSymbol t = env.join(then_exp.semant(env), else_exp.semant(env));
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.COND, lineNumber);
+        pred.write(out);
+        then_exp.write(out);
+        else_exp.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -718,6 +1145,28 @@ class loop extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        pred.shift_lines(delta);
+        body.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        if (pred.semant(env) != TreeConstants.Bool) {
+            env.error(this, "Loop condition does not have type Bool.");
+        }
+        body.semant(env);
+        set_type(TreeConstants.Object_);
+        return TreeConstants.Object_;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.LOOP, lineNumber);
+        pred.write(out);
+        body.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -737,6 +1186,7 @@ class typcase extends Expression {
         super(lineNumber);
         expr = a1;
         cases = a2;
+        cases.freeze();
     }
     public TreeNode copy() {
         return new typcase(lineNumber, (Expression)expr.copy(), (Cases)cases.copy());
@@ -752,12 +1202,43 @@ class typcase extends Expression {
         dump_line(out, n);
         out.println(Utilities.pad(n) + "_typcase");
 	expr.dump_with_types(out, n + 2);
-        for (Enumeration e = cases.getElements(); e.hasMoreElements();) {
-	    ((Case)e.nextElement()).dump_with_types(out, n + 2);
+        for (int i = 0; i < cases.getLength(); i++) {
+	    ((Case)cases.getNth(i)).dump_with_types(out, n + 2);
         }
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        expr.shift_lines(delta);
+        cases.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        expr.semant(env);
+        // the branch types so far, by their index in the id table
+        BitSet seen = new BitSet();
+        AbstractSymbol t = null;
+        for (int i = 0; i < cases.getLength(); i++) {
+            branch b = (branch)cases.getNth(i);
+            if (seen.get(b.getType().index)) {
+                env.error(b, "Duplicate branch " + b.getType() + " in case statement.");
+            }
+            seen.set(b.getType().index);
+            AbstractSymbol bt = b.semant(env);
+            t = t == null ? bt : env.join(t, bt);
+        }
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.TYPCASE, lineNumber);
+        expr.write(out);
+        cases.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -774,6 +1255,7 @@ class block extends Expression {
     public block(int lineNumber, Expressions a1) {
         super(lineNumber);
         body = a1;
+        body.freeze();
     }
     public TreeNode copy() {
         return new block(lineNumber, (Expressions)body.copy());
@@ -787,12 +1269,32 @@ class block extends Expression {
     public void dump_with_types(PrintStream out, int n) {
         dump_line(out, n);
         out.println(Utilities.pad(n) + "_block");
-        for (Enumeration e = body.getElements(); e.hasMoreElements();) {
-	    ((Expression)e.nextElement()).dump_with_types(out, n + 2);
+        for (int i = 0; i < body.getLength(); i++) {
+	    ((Expression)body.getNth(i)).dump_with_types(out, n + 2);
         }
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        body.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t = null;
+        for (int i = 0; i < body.getLength(); i++) {
+            t = ((Expression)body.getNth(i)).semant(env);
+        }
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.BLOCK, lineNumber);
+        body.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -841,6 +1343,43 @@ class let extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        init.shift_lines(delta);
+        body.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        if (identifier == TreeConstants.self) {
+            env.error(this, "'self' cannot be bound in a 'let' expression.");
+        }
+        boolean defined = type_decl == TreeConstants.SELF_TYPE || env.defined(type_decl);
+        if (!defined) {
+            env.error(this, "Class " + type_decl + " of let-bound identifier " + identifier + " is undefined.");
+        }
+        AbstractSymbol t = init.semant(env);
+        if (defined && !env.conforms(t, type_decl)) {
+            env.error(this, "Inferred type " + t + " of initialization of " + identifier + " does not conform to identifier's declared type " + type_decl + ".");
+        }
+        env.objects.enterScope();
+        if (identifier != TreeConstants.self) {
+            env.objects.addId(identifier, type_decl);
+        }
+        t = body.semant(env);
+        env.objects.exitScope();
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.LET, lineNumber);
+        out.writeSymbol(identifier);
+        out.writeSymbol(type_decl);
+        init.write(out);
+        body.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -879,6 +1418,29 @@ class plus extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+        e2.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t1 = e1.semant(env);
+        AbstractSymbol t2 = e2.semant(env);
+        if (t1 != TreeConstants.Int || t2 != TreeConstants.Int) {
+            env.error(this, "non-Int arguments: " + t1 + " + " + t2);
+        }
+        set_type(TreeConstants.Int);
+        return TreeConstants.Int;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.PLUS, lineNumber);
+        e1.write(out);
+        e2.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -917,6 +1479,29 @@ class sub extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+        e2.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t1 = e1.semant(env);
+        AbstractSymbol t2 = e2.semant(env);
+        if (t1 != TreeConstants.Int || t2 != TreeConstants.Int) {
+            env.error(this, "non-Int arguments: " + t1 + " - " + t2);
+        }
+        set_type(TreeConstants.Int);
+        return TreeConstants.Int;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.SUB, lineNumber);
+        e1.write(out);
+        e2.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -955,6 +1540,29 @@ class mul extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+        e2.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t1 = e1.semant(env);
+        AbstractSymbol t2 = e2.semant(env);
+        if (t1 != TreeConstants.Int || t2 != TreeConstants.Int) {
+            env.error(this, "non-Int arguments: " + t1 + " * " + t2);
+        }
+        set_type(TreeConstants.Int);
+        return TreeConstants.Int;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.MUL, lineNumber);
+        e1.write(out);
+        e2.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -993,6 +1601,29 @@ class divide extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+        e2.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t1 = e1.semant(env);
+        AbstractSymbol t2 = e2.semant(env);
+        if (t1 != TreeConstants.Int || t2 != TreeConstants.Int) {
+            env.error(this, "non-Int arguments: " + t1 + " / " + t2);
+        }
+        set_type(TreeConstants.Int);
+        return TreeConstants.Int;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.DIVIDE, lineNumber);
+        e1.write(out);
+        e2.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1026,6 +1657,26 @@ class neg extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t = e1.semant(env);
+        if (t != TreeConstants.Int) {
+            env.error(this, "Argument of '~' has type " + t + " instead of Int.");
+        }
+        set_type(TreeConstants.Int);
+        return TreeConstants.Int;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.NEG, lineNumber);
+        e1.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1064,6 +1715,29 @@ class lt extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+        e2.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t1 = e1.semant(env);
+        AbstractSymbol t2 = e2.semant(env);
+        if (t1 != TreeConstants.Int || t2 != TreeConstants.Int) {
+            env.error(this, "non-Int arguments: " + t1 + " < " + t2);
+        }
+        set_type(TreeConstants.Bool);
+        return TreeConstants.Bool;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.LT, lineNumber);
+        e1.write(out);
+        e2.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1102,6 +1776,32 @@ class eq extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+        e2.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t1 = e1.semant(env);
+        AbstractSymbol t2 = e2.semant(env);
+        if (t1 != t2
+            && (t1 == TreeConstants.Int || t2 == TreeConstants.Int
+                || t1 == TreeConstants.Bool || t2 == TreeConstants.Bool
+                || t1 == TreeConstants.Str || t2 == TreeConstants.Str)) {
+            env.error(this, "Illegal comparison with a basic type.");
+        }
+        set_type(TreeConstants.Bool);
+        return TreeConstants.Bool;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.EQ, lineNumber);
+        e1.write(out);
+        e2.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1140,6 +1840,29 @@ class leq extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+        e2.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t1 = e1.semant(env);
+        AbstractSymbol t2 = e2.semant(env);
+        if (t1 != TreeConstants.Int || t2 != TreeConstants.Int) {
+            env.error(this, "non-Int arguments: " + t1 + " <= " + t2);
+        }
+        set_type(TreeConstants.Bool);
+        return TreeConstants.Bool;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.LEQ, lineNumber);
+        e1.write(out);
+        e2.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1173,6 +1896,26 @@ class comp extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t = e1.semant(env);
+        if (t != TreeConstants.Bool) {
+            env.error(this, "Argument of 'not' has type " + t + " instead of Bool.");
+        }
+        set_type(TreeConstants.Bool);
+        return TreeConstants.Bool;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.COMP, lineNumber);
+        e1.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1206,6 +1949,21 @@ class int_const extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        set_type(TreeConstants.Int);
+        return TreeConstants.Int;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.INT_CONST, lineNumber);
+        out.writeIntSymbol(token);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1239,6 +1997,21 @@ class bool_const extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        set_type(TreeConstants.Bool);
+        return TreeConstants.Bool;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.BOOL_CONST, lineNumber);
+        out.writeByte(val.booleanValue() ? 1 : 0);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1274,6 +2047,21 @@ class string_const extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        set_type(TreeConstants.Str);
+        return TreeConstants.Str;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.STRING_CONST, lineNumber);
+        out.writeStringSymbol(token);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1307,6 +2095,26 @@ class new_ extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t = type_name;
+        if (t != TreeConstants.SELF_TYPE && !env.defined(t)) {
+            env.error(this, "'new' used with undefined class " + t + ".");
+            t = TreeConstants.Object_;
+        }
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.NEW, lineNumber);
+        out.writeSymbol(type_name);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1340,6 +2148,23 @@ class isvoid extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+        e1.shift_lines(delta);
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        e1.semant(env);
+        set_type(TreeConstants.Bool);
+        return TreeConstants.Bool;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.ISVOID, lineNumber);
+        e1.write(out);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1368,6 +2193,20 @@ class no_expr extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        set_type(TreeConstants.No_type);
+        return TreeConstants.No_type;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.NO_EXPR, lineNumber);
+        out.writeType(get_type());
+    }
+
 }
 
 
@@ -1401,6 +2240,26 @@ class object extends Expression {
 	dump_type(out, n);
     }
 
+    public void shift_lines(int delta) {
+        lineNumber += delta;
+    }
+
+    public AbstractSymbol semant(TypeEnv env) {
+        AbstractSymbol t = (AbstractSymbol)env.objects.lookup(name);
+        if (t == null) {
+            env.error(this, "Undeclared identifier " + name + ".");
+            t = TreeConstants.Object_;
+        }
+        set_type(t);
+        return t;
+    }
+
+    public void write(AstWriter out) throws IOException {
+        out.writeNode(AstWriter.OBJECT, lineNumber);
+        out.writeSymbol(name);
+        out.writeType(get_type());
+    }
+
 }
 
 
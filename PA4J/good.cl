@@ -10,8 +10,56 @@ class C {
 	};
 };
 
-Class Main {
-	main():C {
-	  (new C).init(1,true)
+-- inheritance, SELF_TYPE and overriding with the same signature
+class D inherits C {
+	c : SELF_TYPE;
+	d : C <- new C;
+	e : Object <- 1;
+	me() : SELF_TYPE { self };
+	copy_me() : SELF_TYPE { me().copy() };
+	init(x : Int, y : Bool) : C { self@C.init(x + 1, not y) };
+	get() : Object { c };
+};
+
+class E inherits D {
+	-- a case branch may reuse the name of a formal
+	pick(o : Object) : String {
+	    case o of
+		i : Int => "Int";
+		s : String => s;
+		d : D => "D";
+		o : Object => "Object";
+	    esac
+	};
+	count(n : Int) : Int {
+	    let i : Int <- 0, total : Int in {
+		while i < n loop {
+		    total <- total + i;
+		    i <- i + 1;
+		} pool;
+		total;
+	    }
+	};
+	-- a formal may hide an attribute, and a let a formal
+	shadow(a : Int) : Int {
+	    let a : Bool <- true in if a then 1 else 2 fi
+	};
+	either() : C { if isvoid d then new D else new E fi };
+	same(x : C, y : C) : Bool { x = y };
+	arith(x : Int) : Int { ~x * 2 - 3 / 1 };
+	less(x : Int) : Bool { x <= 3 };
+	str(s : String) : Int { s.concat("x").substr(0, 1).length() };
+};
+
+Class Main inherits IO {
+	main() : Object {
+	    {
+		(new C).init(1, true);
+		out_string((new E).pick("s"));
+		out_int((new E).count(4));
+		(new E).me().copy_me();
+		(new E)@D.me();
+		let e : E <- new E in e.shadow(e.arith(2));
+	    }
 	};
 };